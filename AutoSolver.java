@@ -0,0 +1,48 @@
+/**
+ * Chooses the subset sum solver for each input set by its size and the range of its values:
+ *   - Small sets are searched with the Subset Heaps, whose shallow walks beat setting up any of
+ *     the other solvers
+ *   - Sets whose values span a small enough range for the bitset of reachable sums to fit its
+ *     memory budget are solved by dynamic programming, unless meeting in the middle would
+ *     generate fewer half-sums than the dynamic programming would shift words
+ *   - Sets of up to MeetInTheMiddleSolver.MAX_SIZE elements whose sums cannot overflow are
+ *     solved by meeting in the middle, which takes time independent of where the target lies
+ *   - Anything larger is searched with the Subset Heaps
+ */
+
+public class AutoSolver implements SubsetSumSolver {
+
+  // The largest input set that is always searched with the Subset Heaps
+  public static final int SMALL_SIZE = 12;
+
+  public SubsetTreeSolver treeSolver = new SubsetTreeSolver( );
+  public MeetInTheMiddleSolver meetInTheMiddleSolver = new MeetInTheMiddleSolver( );
+  public BitsetSolver bitsetSolver = new BitsetSolver( );
+
+  public SubsetSumResult solve( ScaledInput input, long target ) {
+    return choose( input ).solve( input, target );
+  }
+
+  public SubsetSumResult[] solveAll( ScaledInput input, long[] targets ) {
+    return choose( input ).solveAll( input, targets );
+  }
+
+  public SubsetSumSolver choose( ScaledInput input ) {
+    int size = input.size( );
+    if ( size <= SMALL_SIZE ) {
+      return treeSolver;
+    }
+    // The half-sums are formed from the unscaled values, which must not overflow a long
+    long range = Math.max( Math.abs( input.values[0] ), Math.abs( input.values[size - 1] ) );
+    boolean halves = size <= MeetInTheMiddleSolver.MAX_SIZE && range <= Long.MAX_VALUE / size;
+    if ( bitsetSolver.fits( input ) ) {
+      // Both solvers touch each of their entries about once per element
+      long words = ( range * size ) >>> 6;
+      if ( !halves || words <= 1L << ( ( size + 1 ) / 2 ) ) {
+        return bitsetSolver;
+      }
+    }
+    return halves ? meetInTheMiddleSolver : treeSolver;
+  }
+
+}
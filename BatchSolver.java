@@ -0,0 +1,592 @@
+/**
+ * Solves a stream of subset sum problems in one JVM, on a pool of worker threads, reading them
+ * from files or standard input and writing a result line for each one.
+ *
+ *   java BatchSolver [-binary] [-completion] [-threads N] [-engine E] [-o FILE] [FILE...]
+ *
+ * With no files, or a file named -, the problems are read from standard input, and without -o
+ * the results are written to standard output. The inputs are read through buffered channels and
+ * parsed straight from their bytes. A problem is a line of text, or with -binary a record:
+ *   - Text: the input set, then a colon and the target, with the numbers separated by spaces,
+ *     tabs or commas, such as "-7 -3 -2 0 1 5 8 17 21 : 50". Blank lines and anything after a #
+ *     are ignored.
+ *   - Binary: the size of the input set as a big-endian int, the target as a big-endian long,
+ *     then the elements of the input set as big-endian longs. A record of more than
+ *     MAX_SET_SIZE elements is skipped, and its result is an error.
+ *
+ * Problems are numbered from 1 across all of the inputs, and each result line starts with the
+ * number of its problem and its target, followed by the elements of the subset found, "none" if
+ * no subset sums to the target, or "error" and the reason a problem could not be solved. Results
+ * are written in the order of the problems, or with -completion in the order they are solved,
+ * which does not hold a fast problem back behind a slow one. At most WINDOW problems per thread
+ * are read ahead of the results, so the input may be of any length.
+ *
+ * The engine is any of those of the benchmarks (binary, interpolation, threshold, mitm, bitset or
+ * auto, the default), and each worker thread has solvers of its own. Once every problem has been
+ * solved, a summary of the throughput and of the latency of solving each problem is printed to
+ * standard error.
+ */
+
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchSolver {
+
+  public static final int BUFFER_BYTES = 1 << 16;
+  // The number of problems per worker thread that may be read ahead of their results
+  public static final int WINDOW = 64;
+  // The largest input set of a binary record, beyond which the record is skipped as an error
+  public static final int MAX_SET_SIZE = 1 << 16;
+
+  public boolean binary = false;
+  public boolean completionOrder = false;
+  public int threads = Runtime.getRuntime( ).availableProcessors( );
+  public String engine = "auto";
+
+  public long problems = 0;
+  public long solved = 0;
+  public long unsolved = 0;
+  public long errors = 0;
+  public long nanos = 0;
+  public LatencyHistogram latencies = new LatencyHistogram( );
+
+  public static void main( String[] args ) throws IOException, InterruptedException {
+    BatchSolver batch = new BatchSolver( );
+    String output = null;
+    List<String> files = new ArrayList<String>( );
+    try {
+      for ( int i = 0; i < args.length; ++i ) {
+        switch ( args[i] ) {
+          case "-binary":
+            batch.binary = true;
+            break;
+          case "-completion":
+            batch.completionOrder = true;
+            break;
+          case "-threads":
+            String threads = value( args, i++ );
+            try {
+              batch.threads = Integer.parseInt( threads );
+            }
+            catch ( NumberFormatException e ) {
+              throw new IllegalArgumentException( "Option -threads needs a number, not '"
+                                                  + threads + "'" );
+            }
+            if ( batch.threads < 1 ) {
+              throw new IllegalArgumentException( "There must be at least one thread" );
+            }
+            break;
+          case "-engine":
+            batch.engine = value( args, i++ );
+            batch.newSolver( );
+            break;
+          case "-o":
+            output = value( args, i++ );
+            break;
+          default:
+            if ( args[i].startsWith( "-" ) && args[i].length( ) > 1 ) {
+              throw new IllegalArgumentException( "Unknown option " + args[i] );
+            }
+            files.add( args[i] );
+        }
+      }
+    }
+    catch ( RuntimeException e ) {
+      System.err.println( e.getMessage( ) );
+      System.err.println( "Usage: java BatchSolver [-binary] [-completion] [-threads N] "
+                          + "[-engine E] [-o FILE] [FILE...]" );
+      System.exit( 2 );
+    }
+    if ( files.isEmpty( ) ) {
+      files.add( "-" );
+    }
+    List<ReadableByteChannel> inputs = new ArrayList<ReadableByteChannel>( );
+    for ( String file : files ) {
+      inputs.add( file.equals( "-" ) ? new FileInputStream( FileDescriptor.in ).getChannel( )
+                                     : FileChannel.open( Paths.get( file ) ) );
+    }
+    WritableByteChannel out;
+    if ( output == null ) {
+      out = new FileOutputStream( FileDescriptor.out ).getChannel( );
+    }
+    else {
+      out = FileChannel.open( Paths.get( output ), StandardOpenOption.CREATE,
+                              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING );
+    }
+    int status = 0;
+    try {
+      batch.run( inputs, out );
+    }
+    catch ( IOException e ) {
+      System.err.println( "Stopped after problem " + batch.problems + ": " + e.getMessage( ) );
+      status = 1;
+    }
+    finally {
+      for ( ReadableByteChannel input : inputs ) {
+        input.close( );
+      }
+      out.close( );
+    }
+    batch.printSummary( System.err );
+    if ( status != 0 ) {
+      System.exit( status );
+    }
+  }
+
+  /*
+   * The value that follows the option at args[i], which must have one
+   */
+  private static String value( String[] args, int i ) {
+    if ( i + 1 >= args.length ) {
+      throw new IllegalArgumentException( "Option " + args[i] + " needs a value" );
+    }
+    return args[i + 1];
+  }
+
+  /*
+   * A new solver for the engine, which is not shared between threads
+   */
+  public SubsetSumSolver newSolver( ) {
+    switch ( engine ) {
+      case "binary":
+        SubsetTreeSolver binary = new SubsetTreeSolver( );
+        binary.mode = SearchMode.BINARY;
+        return binary;
+      case "interpolation":
+        SubsetTreeSolver interpolation = new SubsetTreeSolver( );
+        interpolation.mode = SearchMode.INTERPOLATION;
+        return interpolation;
+      case "threshold":
+        return new SubsetTreeSolver( );
+      case "mitm":
+        return new MeetInTheMiddleSolver( );
+      case "bitset":
+        return new BitsetSolver( );
+      case "auto":
+        return new AutoSolver( );
+      default:
+        throw new IllegalArgumentException( "Unknown engine " + engine );
+    }
+  }
+
+  /*
+   * Solves every problem of the inputs, one input after another, and writes their results to the
+   * output, adding to the counts and latencies of this batch. If an input cannot be read, the
+   * results of the problems read before it failed are written before the IOException is thrown.
+   */
+  public void run( List<ReadableByteChannel> inputs, WritableByteChannel out )
+      throws IOException, InterruptedException {
+    ThreadLocal<SubsetSumSolver> solvers = ThreadLocal.withInitial( this::newSolver );
+    ExecutorService pool = Executors.newFixedThreadPool( threads, task -> {
+      Thread thread = new Thread( task, "batch-solver" );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    CompletionService<Answer> completed = new ExecutorCompletionService<Answer>( pool );
+    ArrayDeque<Future<Answer>> pending = new ArrayDeque<Future<Answer>>( );
+    Writer writer = Channels.newWriter( out, "US-ASCII" );
+    StringBuilder line = new StringBuilder( );
+    int window = threads * WINDOW;
+    int inFlight = 0;
+    long start = System.nanoTime( );
+    IOException failure = null;
+    try {
+      try {
+        for ( ReadableByteChannel input : inputs ) {
+          ProblemReader reader = new ProblemReader( input, binary );
+          while ( true ) {
+            Problem problem = reader.next( );
+            if ( problem == null ) {
+              break;
+            }
+            problem.number = ++problems;
+            if ( inFlight == window ) {
+              write( take( completed, pending ), writer, line );
+              --inFlight;
+            }
+            if ( completionOrder ) {
+              completed.submit( ( ) -> solve( solvers.get( ), problem ) );
+            }
+            else {
+              pending.add( pool.submit( ( ) -> solve( solvers.get( ), problem ) ) );
+            }
+            ++inFlight;
+          }
+        }
+      }
+      catch ( IOException e ) {
+        // The results of the problems read before the input failed are still written
+        failure = e;
+      }
+      for ( ; inFlight > 0; --inFlight ) {
+        write( take( completed, pending ), writer, line );
+      }
+      writer.flush( );
+      if ( failure != null ) {
+        throw failure;
+      }
+    }
+    finally {
+      pool.shutdownNow( );
+      nanos += System.nanoTime( ) - start;
+    }
+  }
+
+  /*
+   * The next result to write: the earliest problem's, or the first solved in completion order
+   */
+  private Answer take( CompletionService<Answer> completed, ArrayDeque<Future<Answer>> pending )
+      throws InterruptedException {
+    try {
+      return completionOrder ? completed.take( ).get( ) : pending.poll( ).get( );
+    }
+    catch ( ExecutionException e ) {
+      // solve puts every failure in its answer, so a failed task is a bug
+      throw new IllegalStateException( e.getCause( ) );
+    }
+  }
+
+  private static Answer solve( SubsetSumSolver solver, Problem problem ) {
+    Answer answer = new Answer( problem );
+    if ( problem.error != null ) {
+      answer.error = problem.error;
+      return answer;
+    }
+    long start = System.nanoTime( );
+    try {
+      SubsetSumResult result = solver.solve( new ScaledInput( problem.values ), problem.target );
+      answer.subset = result == null ? null : result.values;
+    }
+    catch ( RuntimeException | OutOfMemoryError e ) {
+      answer.error = e.getMessage( ) != null ? e.getMessage( ) : e.getClass( ).getSimpleName( );
+    }
+    answer.nanos = System.nanoTime( ) - start;
+    return answer;
+  }
+
+  private void write( Answer answer, Writer writer, StringBuilder line ) throws IOException {
+    line.setLength( 0 );
+    line.append( answer.problem.number ).append( ' ' ).append( answer.problem.target );
+    if ( answer.error != null ) {
+      ++errors;
+      line.append( " error " ).append( answer.error );
+    }
+    else {
+      latencies.record( answer.nanos );
+      if ( answer.subset == null ) {
+        ++unsolved;
+        line.append( " none" );
+      }
+      else {
+        ++solved;
+        for ( long value : answer.subset ) {
+          line.append( ' ' ).append( value );
+        }
+      }
+    }
+    line.append( '\n' );
+    writer.append( line );
+  }
+
+  public void printSummary( PrintStream out ) {
+    double seconds = nanos / 1e9;
+    out.printf( "%d problems in %.3f s (%.0f per second): %d solved, %d without a subset, "
+                + "%d errors%n", problems, seconds, seconds > 0 ? problems / seconds : 0.0,
+                solved, unsolved, errors );
+    out.printf( "latency (us): mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                latencies.mean( ) / 1e3, latencies.percentile( 0.5 ) / 1e3,
+                latencies.percentile( 0.9 ) / 1e3, latencies.percentile( 0.99 ) / 1e3,
+                latencies.percentile( 0.999 ) / 1e3, latencies.max / 1e3 );
+  }
+
+  /*
+   * A problem as read from an input, or the reason it could not be read
+   */
+  public static class Problem {
+
+    public long number;
+    public long[] values;
+    public long target;
+    public String error;
+
+  }
+
+  private static class Answer {
+
+    private Problem problem;
+    private long[] subset;
+    private String error;
+    private long nanos;
+
+    private Answer( Problem problem ) {
+      this.problem = problem;
+    }
+
+  }
+
+  /*
+   * Reads problems from a channel through a direct buffer, parsing their numbers from its bytes
+   */
+  public static class ProblemReader {
+
+    private ReadableByteChannel channel;
+    private boolean binary;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER_BYTES );
+    private long[] values = new long[16];
+    private boolean ended = false;
+
+    public ProblemReader( ReadableByteChannel channel, boolean binary ) {
+      this.channel = channel;
+      this.binary = binary;
+      buffer.flip( );
+    }
+
+    /*
+     * The next problem, or null at the end of the input. A line of text that is not a problem is
+     * returned as a problem with an error, but a binary record that is cut short throws an
+     * EOFException, as the records after it cannot be found.
+     */
+    public Problem next( ) throws IOException {
+      return binary ? nextRecord( ) : nextLine( );
+    }
+
+    private Problem nextRecord( ) throws IOException {
+      if ( !fill( 4 ) ) {
+        if ( buffer.hasRemaining( ) ) {
+          throw new EOFException( "The input ends within a record" );
+        }
+        return null;
+      }
+      int size = buffer.getInt( );
+      if ( size < 0 ) {
+        throw new IOException( "A record has a negative size " + size );
+      }
+      Problem problem = new Problem( );
+      if ( !fill( 8 ) ) {
+        throw new EOFException( "The input ends within a record" );
+      }
+      problem.target = buffer.getLong( );
+      if ( size > MAX_SET_SIZE ) {
+        // The size alone is not to be trusted with an allocation, so the elements are skipped
+        for ( long skip = 8L * size; skip > 0; ) {
+          if ( !fill( 1 ) ) {
+            throw new EOFException( "The input ends within a record" );
+          }
+          int count = (int) Math.min( skip, buffer.remaining( ) );
+          buffer.position( buffer.position( ) + count );
+          skip -= count;
+        }
+        problem.error = "The input set has more than " + MAX_SET_SIZE + " elements";
+        return problem;
+      }
+      problem.values = new long[size];
+      for ( int i = 0; i < size; ++i ) {
+        if ( !fill( 8 ) ) {
+          throw new EOFException( "The input ends within a record" );
+        }
+        problem.values[i] = buffer.getLong( );
+      }
+      return problem;
+    }
+
+    /*
+     * Reads until at least count bytes are buffered, returning false if the input ends first
+     */
+    private boolean fill( int count ) throws IOException {
+      while ( buffer.remaining( ) < count ) {
+        if ( ended ) {
+          return false;
+        }
+        buffer.compact( );
+        ended = channel.read( buffer ) < 0;
+        buffer.flip( );
+      }
+      return true;
+    }
+
+    /*
+     * The next byte of the input, or -1 at its end
+     */
+    private int read( ) throws IOException {
+      while ( !buffer.hasRemaining( ) ) {
+        if ( ended ) {
+          return -1;
+        }
+        buffer.clear( );
+        ended = channel.read( buffer ) < 0;
+        buffer.flip( );
+      }
+      return buffer.get( ) & 0xff;
+    }
+
+    private Problem nextLine( ) throws IOException {
+      while ( true ) {
+        int count = 0;
+        int targets = -1;
+        long target = 0;
+        String error = null;
+        int c = read( );
+        while ( c != '\n' && c != -1 ) {
+          if ( c == ' ' || c == '\t' || c == ',' || c == '\r' ) {
+            c = read( );
+          }
+          else if ( c == '#' ) {
+            c = skipLine( );
+          }
+          else if ( c == ':' && targets < 0 ) {
+            targets = 0;
+            c = read( );
+          }
+          else if ( c == '-' || c == '+' || ( c >= '0' && c <= '9' ) ) {
+            boolean negative = c == '-';
+            boolean digits = false;
+            boolean overflow = false;
+            // The digits are accumulated as a negative number, so that Long.MIN_VALUE can be read
+            long number = 0;
+            if ( c == '-' || c == '+' ) {
+              c = read( );
+            }
+            while ( c >= '0' && c <= '9' ) {
+              digits = true;
+              int digit = c - '0';
+              if ( number < ( Long.MIN_VALUE + digit ) / 10 ) {
+                overflow = true;
+              }
+              number = number * 10 - digit;
+              c = read( );
+            }
+            if ( !negative ) {
+              overflow |= number == Long.MIN_VALUE;
+              number = -number;
+            }
+            if ( error == null && !digits ) {
+              error = "A sign is not followed by a number";
+            }
+            if ( error == null && overflow ) {
+              error = "A number does not fit in a long";
+            }
+            if ( targets < 0 ) {
+              if ( count == values.length ) {
+                values = Arrays.copyOf( values, count * 2 );
+              }
+              values[count++] = number;
+            }
+            else {
+              target = number;
+              ++targets;
+            }
+          }
+          else {
+            if ( error == null ) {
+              error = "Unexpected character '" + (char) c + "'";
+            }
+            c = skipLine( );
+          }
+        }
+        if ( count == 0 && targets < 0 && error == null ) {
+          // A blank line
+          if ( c == -1 ) {
+            return null;
+          }
+          continue;
+        }
+        Problem problem = new Problem( );
+        problem.values = Arrays.copyOf( values, count );
+        problem.target = target;
+        if ( error == null && targets != 1 ) {
+          error = targets < 0 ? "There is no target" : "There must be one target";
+        }
+        problem.error = error;
+        return problem;
+      }
+    }
+
+    private int skipLine( ) throws IOException {
+      int c = read( );
+      while ( c != '\n' && c != -1 ) {
+        c = read( );
+      }
+      return c;
+    }
+
+  }
+
+  /*
+   * A histogram of latencies in nanoseconds, in buckets an eighth of a power of two wide, so
+   * that percentiles are known to within an eighth and any number of latencies take the same
+   * memory
+   */
+  public static class LatencyHistogram {
+
+    public long[] counts = new long[512];
+    public long count = 0;
+    public long total = 0;
+    public long max = 0;
+
+    public void record( long nanos ) {
+      nanos = Math.max( nanos, 0 );
+      ++counts[bucket( nanos )];
+      ++count;
+      total += nanos;
+      max = Math.max( max, nanos );
+    }
+
+    public double mean( ) {
+      return count == 0 ? 0 : (double) total / count;
+    }
+
+    /*
+     * The least latency of the bucket holding the given fraction of the latencies below it
+     */
+    public long percentile( double fraction ) {
+      long rank = (long) Math.ceil( fraction * count );
+      long seen = 0;
+      for ( int i = 0; i < counts.length; ++i ) {
+        seen += counts[i];
+        if ( seen >= rank && seen > 0 ) {
+          return Math.min( lowest( i ), max );
+        }
+      }
+      return 0;
+    }
+
+    private static int bucket( long nanos ) {
+      if ( nanos < 8 ) {
+        return (int) nanos;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros( nanos );
+      return ( exponent - 2 ) * 8 + (int) ( ( nanos >>> ( exponent - 3 ) ) & 7 );
+    }
+
+    private static long lowest( int bucket ) {
+      if ( bucket < 8 ) {
+        return bucket;
+      }
+      return ( 8L + bucket % 8 ) << ( bucket / 8 - 1 );
+    }
+
+  }
+
+}
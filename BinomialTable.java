@@ -0,0 +1,100 @@
+/**
+ * A table of the binomial coefficients C(n, k) for n up to a given size, built row by row as
+ * Pascal's triangle. Coefficients too large for a long are held as Long.MAX_VALUE, which is
+ * still an upper bound on every rank that a Subset Heap walk can reach; exact returns the exact
+ * coefficient for those.
+ */
+
+import java.math.BigInteger;
+
+public class BinomialTable {
+
+  public long[][] rows;
+
+  public BinomialTable( int size ) {
+    rows = new long[size + 1][];
+    for ( int n = 0; n <= size; ++n ) {
+      rows[n] = new long[n + 1];
+      rows[n][0] = 1;
+      rows[n][n] = 1;
+      for ( int k = 1; k < n; ++k ) {
+        rows[n][k] = saturatedAdd( rows[n - 1][k - 1], rows[n - 1][k] );
+      }
+    }
+  }
+
+  public int size( ) {
+    return rows.length - 1;
+  }
+
+  /*
+   * C(n, k), or Long.MAX_VALUE if it is too large for a long
+   */
+  public long choose( int n, int k ) {
+    if ( k < 0 || k > n ) {
+      return 0;
+    }
+    return rows[n][k];
+  }
+
+  /*
+   * Whether choose( n, k ) is exact rather than saturated
+   */
+  public boolean isExact( int n, int k ) {
+    return choose( n, k ) != Long.MAX_VALUE;
+  }
+
+  public BigInteger exact( int n, int k ) {
+    if ( isExact( n, k ) ) {
+      return BigInteger.valueOf( choose( n, k ) );
+    }
+    BigInteger c = BigInteger.ONE;
+    k = Math.min( k, n - k );
+    for ( int i = 0; i < k; ++i ) {
+      c = c.multiply( BigInteger.valueOf( n - i ) ).divide( BigInteger.valueOf( i + 1 ) );
+    }
+    return c;
+  }
+
+  /*
+   * C(n, k) computed without a table, or Long.MAX_VALUE if it is too large for a long
+   */
+  public static long saturatedChoose( int n, int k ) {
+    if ( k < 0 || k > n ) {
+      return 0;
+    }
+    k = Math.min( k, n - k );
+    long c = 1;
+    for ( int i = 0; i < k; ++i ) {
+      // c * ( n - i ) is ( i + 1 ) * C(n, i + 1), so dividing out their common factor first
+      // leaves a product that is exact whenever C(n, i + 1) fits
+      long g = gcd( c, i + 1 );
+      long a = c / g;
+      long b = ( n - i ) / ( ( i + 1 ) / g );
+      if ( a > Long.MAX_VALUE / b ) {
+        return Long.MAX_VALUE;
+      }
+      c = a * b;
+    }
+    return c;
+  }
+
+  private static long gcd( long a, long b ) {
+    while ( b != 0 ) {
+      long t = a % b;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
+
+  public static long saturatedAdd( long a, long b ) {
+    long sum = a + b;
+    // Overflow occurred if both operands have the sign opposite to the sum's
+    if ( ( ( a ^ sum ) & ( b ^ sum ) ) < 0 ) {
+      return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+    return sum;
+  }
+
+}
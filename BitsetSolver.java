@@ -0,0 +1,190 @@
+/**
+ * Solves the subset sum problem by dynamic programming over the reachable sums, for input sets
+ * whose values span a small range:
+ *   1. Start with only the empty sum reachable
+ *   2. For each element of the sorted input set, the sums reachable with it are those reachable
+ *      without it, shifted by the element. The reachable sums are held as a bitset in a long[],
+ *      so each element shifts and ors the bitset 64 sums at a time.
+ *   3. Each sum records the element that first made it reachable. Following those elements back
+ *      from the target, subtracting each from the sum, gives the subset.
+ * The bitset spans every sum between that of the negative elements and that of the positive
+ * ones. When the bitset and the record of elements would take more than the memory budget, the
+ * input set is handed to the fallback solver instead.
+ *
+ * The subset returned is any subset that sums to the target, not necessarily one of the
+ * smallest size.
+ */
+
+public class BitsetSolver implements SubsetSumSolver {
+
+  public long memoryBudget = 256L << 20;
+  public SubsetSumSolver fallback = new SubsetTreeSolver( );
+
+  public SubsetSumResult solve( ScaledInput input, long target ) {
+    int size = input.size( );
+    if ( size == 0 ) {
+      return null;
+    }
+    if ( !fits( input ) ) {
+      return fallback.solve( input, target );
+    }
+    long[] values = unscaled( input );
+    long low = 0;
+    long high = 0;
+    for ( int i = 0; i < size; ++i ) {
+      if ( values[i] < 0 ) {
+        low += values[i];
+      }
+      else {
+        high += values[i];
+      }
+    }
+    if ( target < low || target > high ) {
+      return null;
+    }
+
+    // 1. Start with only the empty sum reachable, at the position of the sum 0
+    long width = high - low + 1;
+    long[] bits = new long[(int) ( ( width + 63 ) >>> 6 )];
+    int trailBytes = trailBytes( size );
+    byte[] trail = new byte[(int) ( width * trailBytes )];
+    int base = (int) -low;
+    int goal = (int) ( target - low );
+    bits[base >>> 6] |= 1L << base;
+
+    // 2. Add each element in turn
+    for ( int i = 0; i < size; ++i ) {
+      int shift = (int) values[i];
+      // A non-empty subset summing to 0 is never recorded, as the sum 0 starts out reachable.
+      // Instead, look for an element whose negation is reachable from those before it.
+      if ( target == 0 ) {
+        int from = base - shift;
+        if ( from >= 0 && from < width && ( bits[from >>> 6] & ( 1L << from ) ) != 0 ) {
+          return result( input, values, trail, trailBytes, base, from, i );
+        }
+      }
+      if ( shift > 0 ) {
+        shiftUp( bits, trail, trailBytes, shift, i );
+      }
+      else if ( shift < 0 ) {
+        shiftDown( bits, trail, trailBytes, -shift, i );
+      }
+      if ( goal != base && ( bits[goal >>> 6] & ( 1L << goal ) ) != 0 ) {
+        return result( input, values, trail, trailBytes, base, goal, -1 );
+      }
+    }
+    return null;
+  }
+
+  /*
+   * Whether the bitset and the record of elements for the input set fit within the budget
+   */
+  public boolean fits( ScaledInput input ) {
+    long width = 1;
+    for ( int i = 0; i < input.size( ); ++i ) {
+      width += Math.abs( input.scaled[i] - input.offset );
+      if ( width > Integer.MAX_VALUE ) {
+        return false;
+      }
+    }
+    long bytes = ( ( width + 63 ) >>> 6 ) * 8 + width * trailBytes( input.size( ) );
+    return bytes <= memoryBudget && width * trailBytes( input.size( ) ) <= Integer.MAX_VALUE;
+  }
+
+  /*
+   * Ors the bitset with itself shifted up by the given number of sums, recording the element
+   * against each sum that becomes reachable. The words are visited from the top down, so that
+   * every word is read before it is written.
+   */
+  private static void shiftUp( long[] bits, byte[] trail, int trailBytes, int shift, int element ) {
+    int words = shift >>> 6;
+    int offset = shift & 63;
+    for ( int w = bits.length - 1; w >= words; --w ) {
+      long shifted = bits[w - words] << offset;
+      if ( offset != 0 && w - words - 1 >= 0 ) {
+        shifted |= bits[w - words - 1] >>> ( 64 - offset );
+      }
+      record( bits, trail, trailBytes, w, shifted & ~bits[w], element );
+    }
+  }
+
+  /*
+   * Ors the bitset with itself shifted down by the given number of sums, as shiftUp, visiting the
+   * words from the bottom up
+   */
+  private static void shiftDown( long[] bits, byte[] trail, int trailBytes, int shift, int element ) {
+    int words = shift >>> 6;
+    int offset = shift & 63;
+    for ( int w = 0; w + words < bits.length; ++w ) {
+      long shifted = bits[w + words] >>> offset;
+      if ( offset != 0 && w + words + 1 < bits.length ) {
+        shifted |= bits[w + words + 1] << ( 64 - offset );
+      }
+      record( bits, trail, trailBytes, w, shifted & ~bits[w], element );
+    }
+  }
+
+  private static void record( long[] bits, byte[] trail, int trailBytes, int w, long added,
+                              int element ) {
+    if ( added == 0 ) {
+      return;
+    }
+    bits[w] |= added;
+    for ( long m = added; m != 0; m &= m - 1 ) {
+      int position = ( w << 6 ) + Long.numberOfTrailingZeros( m );
+      for ( int b = 0; b < trailBytes; ++b ) {
+        trail[position * trailBytes + b] = (byte) ( element >>> ( 8 * b ) );
+      }
+    }
+  }
+
+  /*
+   * 3. Follows the record of elements back from the given position to the empty sum, adding the
+   * last element, if any, to the subset
+   */
+  private static SubsetSumResult result( ScaledInput input, long[] values, byte[] trail,
+                                         int trailBytes, int base, int position, int last ) {
+    boolean[] chosen = new boolean[values.length];
+    int count = 0;
+    if ( last >= 0 ) {
+      chosen[last] = true;
+      ++count;
+    }
+    while ( position != base ) {
+      int element = 0;
+      for ( int b = 0; b < trailBytes; ++b ) {
+        element |= ( trail[position * trailBytes + b] & 0xff ) << ( 8 * b );
+      }
+      chosen[element] = true;
+      ++count;
+      position -= (int) values[element];
+    }
+    int[] indices = new int[count];
+    int k = 0;
+    for ( int i = 0; i < chosen.length; ++i ) {
+      if ( chosen[i] ) {
+        indices[k++] = i;
+      }
+    }
+    return new SubsetSumResult( input, indices );
+  }
+
+  private static int trailBytes( int size ) {
+    if ( size <= 1 << 8 ) {
+      return 1;
+    }
+    if ( size <= 1 << 16 ) {
+      return 2;
+    }
+    return 4;
+  }
+
+  private static long[] unscaled( ScaledInput input ) {
+    long[] values = new long[input.size( )];
+    for ( int i = 0; i < values.length; ++i ) {
+      values[i] = input.scaled[i] - input.offset;
+    }
+    return values;
+  }
+
+}
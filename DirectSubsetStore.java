@@ -0,0 +1,139 @@
+/**
+ * Keeps the nodes of a cursor outside of the Java heap, in fixed-width records held in direct
+ * byte buffers.
+ *
+ * A SubsetRecords record holds a node's sum, its limit and its order indices. The visited
+ * nodes are records appended in order of rank. The frontier nodes are records in slots that are
+ * reused once their nodes have been visited, with the free slots chained through their limits,
+ * and the frontier itself is a binary min-heap laid out in records of a sum and a slot. Nothing
+ * on the Java heap grows with the depth of the walk beyond the references to the buffers, and a
+ * node only becomes an object when it is handed to the cursor, so deep walks leave the garbage
+ * collector with nothing more to trace than shallow ones.
+ *
+ * The buffers are allocated in chunks as they are needed, and released when the store is garbage
+ * collected. Direct buffers are limited by -XX:MaxDirectMemorySize rather than -Xmx, though the
+ * limit defaults to the maximum heap size, so it must be raised for walks larger than the heap.
+ *
+ * The records are kept in ByteBuffers rather than MemorySegments because, on the Java 17 that the
+ * build targets, MemorySegment is only the incubator API of jdk.incubator.foreign, which every
+ * compilation and run would have to add with --add-modules, and which changed between releases
+ * before it was finalised.
+ */
+
+public class DirectSubsetStore implements SubsetStore {
+
+  public int order;
+  private SubsetRecords frontierNodes;
+  // The frontier heap, in records with no indices whose limits hold the slots of their nodes
+  private SubsetRecords heap = new SubsetRecords( 0 );
+  private SubsetRecords visitedNodes;
+  private int frontierSize = 0;
+  private int slotCount = 0;
+  private int freeSlot = -1;
+  private int visitedCount = 0;
+
+  public DirectSubsetStore( int order ) {
+    this.order = order;
+    frontierNodes = new SubsetRecords( order );
+    visitedNodes = new SubsetRecords( order );
+  }
+
+  public void push( SubsetNode node ) {
+    int slot;
+    if ( freeSlot >= 0 ) {
+      slot = freeSlot;
+      freeSlot = frontierNodes.limit( slot );
+    }
+    else {
+      slot = slotCount++;
+    }
+    frontierNodes.put( slot, node );
+    // Sift the new entry up from the bottom of the heap
+    long sum = node.sum;
+    int i = frontierSize++;
+    heap.ensure( i );
+    while ( i > 0 ) {
+      int parent = ( i - 1 ) >>> 1;
+      long parentSum = heap.sum( parent );
+      if ( parentSum <= sum ) {
+        break;
+      }
+      heap.set( i, parentSum, heap.limit( parent ) );
+      i = parent;
+    }
+    heap.set( i, sum, slot );
+  }
+
+  public SubsetNode poll( ) {
+    if ( frontierSize == 0 ) {
+      return null;
+    }
+    int slot = heap.limit( 0 );
+    SubsetNode node = frontierNodes.get( slot );
+    frontierNodes.set( slot, 0, freeSlot );
+    freeSlot = slot;
+    --frontierSize;
+    if ( frontierSize > 0 ) {
+      // Sift the last entry down from the top of the heap
+      long sum = heap.sum( frontierSize );
+      int handle = heap.limit( frontierSize );
+      int i = 0;
+      int half = frontierSize >>> 1;
+      while ( i < half ) {
+        int child = 2 * i + 1;
+        long childSum = heap.sum( child );
+        if ( child + 1 < frontierSize && heap.sum( child + 1 ) < childSum ) {
+          ++child;
+          childSum = heap.sum( child );
+        }
+        if ( sum <= childSum ) {
+          break;
+        }
+        heap.set( i, childSum, heap.limit( child ) );
+        i = child;
+      }
+      heap.set( i, sum, handle );
+    }
+    return node;
+  }
+
+  public SubsetNode peek( ) {
+    return frontierSize == 0 ? null : frontierNodes.get( heap.limit( 0 ) );
+  }
+
+  public long peekSum( ) {
+    if ( frontierSize == 0 ) {
+      throw new java.util.NoSuchElementException( );
+    }
+    return heap.sum( 0 );
+  }
+
+  public int frontierSize( ) {
+    return frontierSize;
+  }
+
+  public SubsetNode frontierNode( int i ) {
+    return frontierNodes.get( heap.limit( i ) );
+  }
+
+  public void append( SubsetNode node ) {
+    visitedNodes.put( visitedCount++, node );
+  }
+
+  public int visitedCount( ) {
+    return visitedCount;
+  }
+
+  public SubsetNode visited( int rank ) {
+    return visitedNodes.get( rank - 1 );
+  }
+
+  public long visitedSum( int rank ) {
+    return visitedNodes.sum( rank - 1 );
+  }
+
+  public long memoryBytes( ) {
+    return frontierNodes.bytes( ) + heap.bytes( ) + visitedNodes.bytes( );
+  }
+
+}
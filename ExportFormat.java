@@ -0,0 +1,23 @@
+/**
+ * The formats in which TreeExporter writes a tree.
+ */
+
+public enum ExportFormat {
+
+  /*
+   * Each node as its label followed by its children in brackets, as in label:[child, child],
+   * which is the format of TreeNode.toStringVerbose
+   */
+  BRACKET,
+
+  /*
+   * Each node as a JSON object with its label and an array of its children
+   */
+  JSON,
+
+  /*
+   * The tree as a Graphviz DOT digraph, with an edge from each node to each of its children
+   */
+  DOT
+
+}
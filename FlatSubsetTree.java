@@ -0,0 +1,255 @@
+/**
+ * A whole Subset Tree of order n laid out in flat primitive arrays, for trees that are built once
+ * and then read many times.
+ *
+ * Each node is identified by the rank of its index combination in the combinatorial number
+ * system, the sum over its indices c_0 < c_1 < ... < c_{n-1} of (c_i choose i + 1), so the ids
+ * run from 0 for the root to (N choose n) - 1, and a node's indices are worked out from its id
+ * rather than stored. For each id the tree holds the node's sum and limit, and the ids of its
+ * children in a compressed sparse row index: the children of node id are
+ * children[offsets[id]] to children[offsets[id + 1] - 1].
+ *
+ * A tree can be saved to a file and opened again by mapping the file into memory read-only, so
+ * that opening it costs nothing however large it is, and the pages of the tree are shared by
+ * every process that opens the same file. The file holds a header, the values, and then the
+ * sums, the offsets, the children and the limits, each in native byte order.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+public class FlatSubsetTree {
+
+  private static final int MAGIC = 0x53535446;
+  private static final int HEADER_BYTES = 24;
+  // Every section of the file must fit in a single buffer
+  public static final int MAX_NODES = ( Integer.MAX_VALUE - 8 ) / 8;
+
+  public long[] values;
+  public int order;
+  public int size;
+  public LongBuffer sums;
+  public IntBuffer limits;
+  public IntBuffer offsets;
+  public IntBuffer children;
+  // colex[i][c] is (c choose i), for ranking and unranking index combinations
+  private long[][] colex;
+
+  private FlatSubsetTree( long[] values, int order, int size ) {
+    this.values = values;
+    this.order = order;
+    this.size = size;
+    colex = new long[order + 1][values.length + 1];
+    for ( int c = 0; c <= values.length; ++c ) {
+      colex[0][c] = 1;
+      for ( int i = 1; i <= order; ++i ) {
+        colex[i][c] = c == 0 ? 0 : BinomialTable.saturatedAdd( colex[i - 1][c - 1],
+                                                               colex[i][c - 1] );
+      }
+    }
+  }
+
+  /*
+   * Builds the n-sized Subset Tree of the sorted values. Throws IllegalArgumentException if it
+   * has more than MAX_NODES nodes.
+   */
+  public static FlatSubsetTree build( long[] values, int n ) {
+    long count = BinomialTable.saturatedChoose( values.length, n );
+    if ( n < 1 || count > MAX_NODES ) {
+      throw new IllegalArgumentException( "A tree of " + count + " nodes cannot be laid out flat" );
+    }
+    int size = (int) count;
+    FlatSubsetTree tree = new FlatSubsetTree( values, n, size );
+    tree.sums = LongBuffer.allocate( size );
+    tree.limits = IntBuffer.allocate( size );
+    tree.offsets = IntBuffer.allocate( size + 1 );
+    tree.children = IntBuffer.allocate( size - 1 );
+
+    // The sums and limits are found by walking the tree depth first from the root
+    SubsetCursor generator = new SubsetCursor( values, SubsetCursor.buildTree( values, n ) );
+    ArrayList<SubsetNode> stack = new ArrayList<SubsetNode>( );
+    ArrayList<SubsetNode> generated = new ArrayList<SubsetNode>( );
+    stack.add( generator.root );
+    while ( !stack.isEmpty( ) ) {
+      SubsetNode node = stack.remove( stack.size( ) - 1 );
+      int id = tree.rank( node.indices );
+      tree.sums.put( id, node.sum );
+      tree.limits.put( id, node.limit );
+      generator.buildChildren( node, stack );
+    }
+
+    // The children are then listed in order of id, with each node rebuilt from its id and limit
+    int offset = 0;
+    for ( int id = 0; id < size; ++id ) {
+      tree.offsets.put( id, offset );
+      generated.clear( );
+      generator.buildChildren( tree.node( id ), generated );
+      for ( int i = 0; i < generated.size( ); ++i ) {
+        tree.children.put( offset++, tree.rank( generated.get( i ).indices ) );
+      }
+    }
+    tree.offsets.put( size, offset );
+    return tree;
+  }
+
+  /*
+   * Saves the tree to a file, from which it can be opened again
+   */
+  public void save( Path file ) throws IOException {
+    try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE,
+                                                  StandardOpenOption.TRUNCATE_EXISTING,
+                                                  StandardOpenOption.WRITE ) ) {
+      ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 ).order( ByteOrder.nativeOrder( ) );
+      buffer.putInt( MAGIC ).putInt( values.length ).putInt( order ).putInt( size ).putLong( 0 );
+      for ( long value : values ) {
+        buffer = flush( channel, buffer, 8 ).putLong( value );
+      }
+      for ( int i = 0; i < size; ++i ) {
+        buffer = flush( channel, buffer, 8 ).putLong( sums.get( i ) );
+      }
+      for ( int i = 0; i <= size; ++i ) {
+        buffer = flush( channel, buffer, 4 ).putInt( offsets.get( i ) );
+      }
+      for ( int i = 0; i < size - 1; ++i ) {
+        buffer = flush( channel, buffer, 4 ).putInt( children.get( i ) );
+      }
+      for ( int i = 0; i < size; ++i ) {
+        buffer = flush( channel, buffer, 4 ).putInt( limits.get( i ) );
+      }
+      flush( channel, buffer, buffer.capacity( ) );
+    }
+  }
+
+  /*
+   * Writes out the buffer if it does not have room for the given number of bytes
+   */
+  private static ByteBuffer flush( FileChannel channel, ByteBuffer buffer, int bytes )
+      throws IOException {
+    if ( buffer.remaining( ) < bytes ) {
+      buffer.flip( );
+      while ( buffer.hasRemaining( ) ) {
+        channel.write( buffer );
+      }
+      buffer.clear( );
+    }
+    return buffer;
+  }
+
+  /*
+   * Opens a tree saved to a file by mapping it into memory read-only. Throws
+   * IllegalArgumentException if the file does not hold a tree saved on a machine of the same
+   * byte order.
+   */
+  public static FlatSubsetTree open( Path file ) throws IOException {
+    try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+      ByteBuffer header = map( channel, 0, HEADER_BYTES );
+      if ( header.getInt( 0 ) != MAGIC ) {
+        throw new IllegalArgumentException( file + " does not hold a Subset Tree" );
+      }
+      int length = header.getInt( 4 );
+      int order = header.getInt( 8 );
+      int size = header.getInt( 12 );
+      long[] values = new long[length];
+      map( channel, HEADER_BYTES, 8L * length ).asLongBuffer( ).get( values );
+      FlatSubsetTree tree = new FlatSubsetTree( values, order, size );
+      long position = HEADER_BYTES + 8L * length;
+      tree.sums = map( channel, position, 8L * size ).asLongBuffer( );
+      position += 8L * size;
+      tree.offsets = map( channel, position, 4L * ( size + 1 ) ).asIntBuffer( );
+      position += 4L * ( size + 1 );
+      tree.children = map( channel, position, 4L * ( size - 1 ) ).asIntBuffer( );
+      position += 4L * ( size - 1 );
+      tree.limits = map( channel, position, 4L * size ).asIntBuffer( );
+      return tree;
+    }
+  }
+
+  private static ByteBuffer map( FileChannel channel, long position, long bytes )
+      throws IOException {
+    return channel.map( FileChannel.MapMode.READ_ONLY, position, bytes )
+                  .order( ByteOrder.nativeOrder( ) );
+  }
+
+  /*
+   * The id of the node with the given indices, which must be increasing
+   */
+  public int rank( int[] indices ) {
+    long rank = 0;
+    for ( int i = 0; i < indices.length; ++i ) {
+      rank += colex[i + 1][indices[i]];
+    }
+    return (int) rank;
+  }
+
+  /*
+   * The indices of the node with the given id
+   */
+  public int[] indices( int id ) {
+    int[] indices = new int[order];
+    long rank = id;
+    int high = values.length;
+    for ( int i = order - 1; i >= 0; --i ) {
+      // The greatest c below high for which (c choose i + 1) is at most the remaining rank
+      int low = i;
+      while ( high - low > 1 ) {
+        int mid = ( low + high ) >>> 1;
+        if ( colex[i + 1][mid] <= rank ) {
+          low = mid;
+        }
+        else {
+          high = mid;
+        }
+      }
+      indices[i] = low;
+      rank -= colex[i + 1][low];
+      high = low;
+    }
+    return indices;
+  }
+
+  public SubsetNode node( int id ) {
+    return new SubsetNode( indices( id ), sums.get( id ), limits.get( id ) );
+  }
+
+  public long sum( int id ) {
+    return sums.get( id );
+  }
+
+  public int childCount( int id ) {
+    return offsets.get( id + 1 ) - offsets.get( id );
+  }
+
+  /*
+   * The id of the i'th child of the node with the given id
+   */
+  public int child( int id, int i ) {
+    return children.get( offsets.get( id ) + i );
+  }
+
+  /*
+   * Returns the id of the k'th smallest subset (1-based), or -1 if the tree holds fewer than k
+   */
+  public int findKthMin( long k ) {
+    if ( k < 1 || k > size ) {
+      return -1;
+    }
+    SubsetFrontier toVisit = new SubsetFrontier( );
+    toVisit.add( sums.get( 0 ), 0 );
+    for ( long visited = 1; visited < k; ++visited ) {
+      int id = toVisit.poll( );
+      for ( int i = offsets.get( id ); i < offsets.get( id + 1 ); ++i ) {
+        int child = children.get( i );
+        toVisit.add( sums.get( child ), child );
+      }
+    }
+    return toVisit.peek( );
+  }
+
+}
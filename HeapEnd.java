@@ -0,0 +1,29 @@
+/**
+ * Which Subset Heap SubsetSum walks when searching the n-sized subsets of the input set.
+ *
+ * Every heap is a min-heap, but the n-sized subsets can be reached from either end of their
+ * range of sums. A subset of the n largest elements can be reached from the min-heap over the
+ * negated input set taken in reverse, and a subset summing to s is the complement of an
+ * (N - n)-sized subset summing to the total of the set less s.
+ */
+
+public enum HeapEnd {
+
+  /*
+   * The n-sized min-heap of the input set, rooted at its n smallest elements
+   */
+  MIN,
+
+  /*
+   * The n-sized max-heap of the input set, rooted at its n largest elements and walked as the
+   * min-heap of the mirrored set
+   */
+  MAX,
+
+  /*
+   * The (N - n)-sized min-heap of the input set, whose subsets are the complements of the
+   * n-sized subsets in decreasing order of sum
+   */
+  COMPLEMENT
+
+}
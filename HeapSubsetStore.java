@@ -0,0 +1,108 @@
+/**
+ * Keeps the nodes of a cursor on the Java heap.
+ *
+ * The frontier is a SubsetFrontier of node handles keyed by their sums, and the visited nodes are
+ * kept in compact parallel arrays ordered by rank: their sums, their index combinations and their
+ * limits.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class HeapSubsetStore implements SubsetStore {
+
+  public int order;
+  // The nodes in the frontier, indexed by their handle, with the handles of visited nodes freed
+  public ArrayList<SubsetNode> nodes = new ArrayList<SubsetNode>( );
+  public SubsetFrontier toVisit = new SubsetFrontier( );
+  // The visited nodes, by rank - 1, with order indices per node in visitedIndices
+  public long[] visitedSums = new long[16];
+  public int[] visitedIndices;
+  public int[] visitedLimits = new int[16];
+  public int visitedCount = 0;
+  private int[] freeHandles = new int[16];
+  private int freeCount = 0;
+
+  public HeapSubsetStore( int order ) {
+    this.order = order;
+    visitedIndices = new int[16 * Math.max( order, 1 )];
+  }
+
+  public void push( SubsetNode node ) {
+    int handle;
+    if ( freeCount > 0 ) {
+      handle = freeHandles[--freeCount];
+      nodes.set( handle, node );
+    }
+    else {
+      handle = nodes.size( );
+      nodes.add( node );
+    }
+    toVisit.add( node.sum, handle );
+  }
+
+  public SubsetNode poll( ) {
+    if ( toVisit.isEmpty( ) ) {
+      return null;
+    }
+    int handle = toVisit.poll( );
+    SubsetNode node = nodes.get( handle );
+    nodes.set( handle, null );
+    if ( freeCount == freeHandles.length ) {
+      freeHandles = Arrays.copyOf( freeHandles, freeCount * 2 );
+    }
+    freeHandles[freeCount++] = handle;
+    return node;
+  }
+
+  public SubsetNode peek( ) {
+    return toVisit.isEmpty( ) ? null : nodes.get( toVisit.peek( ) );
+  }
+
+  public long peekSum( ) {
+    return toVisit.peekSum( );
+  }
+
+  public int frontierSize( ) {
+    return toVisit.size( );
+  }
+
+  public SubsetNode frontierNode( int i ) {
+    return nodes.get( toVisit.handles[i] );
+  }
+
+  public void append( SubsetNode node ) {
+    if ( visitedCount == visitedSums.length ) {
+      int capacity = visitedCount * 2;
+      visitedSums = Arrays.copyOf( visitedSums, capacity );
+      visitedIndices = Arrays.copyOf( visitedIndices, capacity * order );
+      visitedLimits = Arrays.copyOf( visitedLimits, capacity );
+    }
+    visitedSums[visitedCount] = node.sum;
+    System.arraycopy( node.indices, 0, visitedIndices, visitedCount * order, order );
+    visitedLimits[visitedCount] = node.limit;
+    ++visitedCount;
+  }
+
+  public int visitedCount( ) {
+    return visitedCount;
+  }
+
+  public SubsetNode visited( int rank ) {
+    int from = ( rank - 1 ) * order;
+    return new SubsetNode( Arrays.copyOfRange( visitedIndices, from, from + order ),
+                           visitedSums[rank - 1], visitedLimits[rank - 1] );
+  }
+
+  public long visitedSum( int rank ) {
+    return visitedSums[rank - 1];
+  }
+
+  public long memoryBytes( ) {
+    long bytes = 8L * visitedSums.length + 4L * visitedIndices.length + 4L * visitedLimits.length;
+    bytes += 12L * toVisit.sums.length + 4L * freeHandles.length;
+    bytes += 4L * nodes.size( ) + ( 40 + 4L * order ) * toVisit.size( );
+    return bytes;
+  }
+
+}
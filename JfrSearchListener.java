@@ -0,0 +1,92 @@
+/**
+ * A SearchListener that records the work done by a search as JDK Flight Recorder events: a
+ * subsettree.Probe event for each probe and a subsettree.OrderSearch event for the search of each
+ * order n.
+ *
+ * While no recording has the events enabled, each report only checks that they are disabled, so
+ * the listener can be left on and the events switched on in a recording when a search needs
+ * looking into, such as with -XX:StartFlightRecording or jcmd JFR.start. Probes are numerous, so
+ * a recording may want to enable the order events only, or give the probe events a threshold.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+public class JfrSearchListener implements SearchListener {
+
+  public void probed( int order, long rank, long popped, long generated, long skipped,
+                      int frontierPeak ) {
+    ProbeEvent event = new ProbeEvent( );
+    if ( event.shouldCommit( ) ) {
+      event.order = order;
+      event.rank = rank;
+      event.popped = popped;
+      event.generated = generated;
+      event.skipped = skipped;
+      event.frontierPeak = frontierPeak;
+      event.commit( );
+    }
+  }
+
+  public void orderSearched( int order, HeapEnd end, long probes, long popped, long nanos,
+                             boolean found ) {
+    OrderSearchEvent event = new OrderSearchEvent( );
+    if ( event.shouldCommit( ) ) {
+      event.order = order;
+      event.end = end.name( );
+      event.probes = probes;
+      event.popped = popped;
+      event.elapsed = nanos;
+      event.found = found;
+      event.commit( );
+    }
+  }
+
+  @Name( "subsettree.Probe" )
+  @Label( "Subset Tree Probe" )
+  @Category( "Subset Tree" )
+  @Description( "A call to findKthMin or seekSum on the cursor of an n-sized Subset Tree" )
+  static class ProbeEvent extends Event {
+
+    @Label( "Order" )
+    int order;
+    @Label( "Rank" )
+    long rank;
+    @Label( "Nodes Popped" )
+    long popped;
+    @Label( "Nodes Generated" )
+    long generated;
+    @Label( "Children Skipped" )
+    long skipped;
+    @Label( "Frontier High-Water Mark" )
+    int frontierPeak;
+
+  }
+
+  @Name( "subsettree.OrderSearch" )
+  @Label( "Subset Tree Order Search" )
+  @Category( "Subset Tree" )
+  @Description( "The search of the n-sized subsets for a target" )
+  static class OrderSearchEvent extends Event {
+
+    @Label( "Order" )
+    int order;
+    @Label( "Heap End" )
+    String end;
+    @Label( "Probes" )
+    long probes;
+    @Label( "Nodes Popped" )
+    long popped;
+    @Label( "Elapsed" )
+    @Timespan( Timespan.NANOSECONDS )
+    long elapsed;
+    @Label( "Found" )
+    boolean found;
+
+  }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Solves the subset sum problem by meeting in the middle, after Horowitz and Sahni:
+ *   1. Split the sorted input set into two halves
+ *   2. Generate the sums of all subsets of each half in sorted order, by merging the sorted sums
+ *      generated so far with those same sums plus the next element of the half
+ *   3. Walk the sums of the first half upwards and those of the second half downwards, moving
+ *      whichever side brings the sum of the pair closer to the target, until a pair sums to it
+ * The subsets are kept as bit masks over their half, alongside their sums, so a half of h
+ * elements takes 2^h entries in a long[] and an int[].
+ *
+ * The subset returned is any subset that sums to the target, not necessarily one of the
+ * smallest size.
+ */
+
+public class MeetInTheMiddleSolver implements SubsetSumSolver {
+
+  // The largest input set accepted, which bounds each half at 2^20 subsets
+  public static final int MAX_SIZE = 40;
+
+  public SubsetSumResult solve( ScaledInput input, long target ) {
+    int size = input.size( );
+    if ( size == 0 ) {
+      return null;
+    }
+    if ( size > MAX_SIZE ) {
+      throw new IllegalArgumentException( "Input set of " + size + " elements is larger than "
+                                          + MAX_SIZE );
+    }
+
+    // 1. Split the sorted input set into two halves
+    long[] values = new long[size];
+    for ( int i = 0; i < size; ++i ) {
+      values[i] = input.scaled[i] - input.offset;
+    }
+    int half = size / 2;
+
+    // 2. Generate the sums of all subsets of each half in sorted order
+    long[] lowSums = new long[1 << half];
+    int[] lowMasks = new int[1 << half];
+    halfSums( values, 0, half, lowSums, lowMasks );
+    long[] highSums = new long[1 << ( size - half )];
+    int[] highMasks = new int[1 << ( size - half )];
+    halfSums( values, half, size, highSums, highMasks );
+
+    // 3. Walk the two lists towards each other
+    int i = 0;
+    int j = highSums.length - 1;
+    while ( i < lowSums.length && j >= 0 ) {
+      long sum = lowSums[i] + highSums[j];
+      if ( sum < target ) {
+        ++i;
+      }
+      else if ( sum > target ) {
+        --j;
+      }
+      else if ( lowMasks[i] != 0 || highMasks[j] != 0 ) {
+        return new SubsetSumResult( input, indices( lowMasks[i], 0, highMasks[j], half ) );
+      }
+      // The empty subset is not a solution. Since only one pair is empty, any other pair with
+      // the same sum either shares this element of the first half with an equal element of the
+      // second half, or is reached by moving on in the first half.
+      else if ( j > 0 && highSums[j - 1] == highSums[j] ) {
+        --j;
+      }
+      else {
+        ++i;
+      }
+    }
+    return null;
+  }
+
+  /*
+   * Fills sums and masks with the sums of all subsets of values[from..to), in non-decreasing
+   * order, and the bit masks over values[from..to) of the subsets having them
+   */
+  public static void halfSums( long[] values, int from, int to, long[] sums, int[] masks ) {
+    long[] fromSums = sums;
+    int[] fromMasks = masks;
+    long[] toSums = new long[sums.length];
+    int[] toMasks = new int[masks.length];
+    fromSums[0] = 0;
+    fromMasks[0] = 0;
+    int count = 1;
+    for ( int k = from; k < to; ++k ) {
+      long value = values[k];
+      int bit = 1 << ( k - from );
+      // Merge the sums so far with the sums so far plus this element, both being sorted
+      int a = 0;
+      int b = 0;
+      int c = 0;
+      while ( a < count && b < count ) {
+        if ( fromSums[a] <= fromSums[b] + value ) {
+          toSums[c] = fromSums[a];
+          toMasks[c++] = fromMasks[a++];
+        }
+        else {
+          toSums[c] = fromSums[b] + value;
+          toMasks[c++] = fromMasks[b++] | bit;
+        }
+      }
+      while ( a < count ) {
+        toSums[c] = fromSums[a];
+        toMasks[c++] = fromMasks[a++];
+      }
+      while ( b < count ) {
+        toSums[c] = fromSums[b] + value;
+        toMasks[c++] = fromMasks[b++] | bit;
+      }
+      count = c;
+      long[] swapSums = fromSums;
+      fromSums = toSums;
+      toSums = swapSums;
+      int[] swapMasks = fromMasks;
+      fromMasks = toMasks;
+      toMasks = swapMasks;
+    }
+    if ( fromSums != sums ) {
+      System.arraycopy( fromSums, 0, sums, 0, count );
+      System.arraycopy( fromMasks, 0, masks, 0, count );
+    }
+  }
+
+  private static int[] indices( int lowMask, int lowFrom, int highMask, int highFrom ) {
+    int[] indices = new int[Integer.bitCount( lowMask ) + Integer.bitCount( highMask )];
+    int k = 0;
+    for ( int m = lowMask; m != 0; m &= m - 1 ) {
+      indices[k++] = lowFrom + Integer.numberOfTrailingZeros( m );
+    }
+    for ( int m = highMask; m != 0; m &= m - 1 ) {
+      indices[k++] = highFrom + Integer.numberOfTrailingZeros( m );
+    }
+    return indices;
+  }
+
+}
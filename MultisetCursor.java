@@ -0,0 +1,144 @@
+/**
+ * A resumable cursor over a virtual Subset Heap of order n whose input set may hold repeated
+ * values, visiting each distinct multiset of n values once.
+ *
+ * The sorted values are compressed into runs of equal values, and a multiset is represented by
+ * the subset that takes the first elements of each run it uses. A node is expanded by replacing
+ * one of its elements with the first element of the next run up, shifting along the elements it
+ * already takes from that run, rather than with the next element of S, which would only give the
+ * same multiset again whenever the next element is equal to the one it replaces.
+ *
+ * The elements are replaced from the greatest down: the limit of a node is the position of the
+ * lowest element that differs from the root, and only the elements at or below the limit are
+ * replaced. An element can only be replaced if it is the last one taken from its run and the
+ * next run has an element to spare, so every multiset is reached from exactly one parent.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+public class MultisetCursor extends SubsetCursor {
+
+  // runStart[r] is the position in S of the first element of run r, and runStart[runs] is |S|
+  public int[] runStart;
+  // runOf[i] is the run that holds the i'th element of S
+  public int[] runOf;
+
+  /*
+   * The values must be sorted in non-decreasing order
+   */
+  public MultisetCursor( long[] values, int n ) {
+    this( values, n, new HeapSubsetStore( n ) );
+  }
+
+  public MultisetCursor( long[] values, int n, SubsetStore store ) {
+    super( values, buildTree( values, n ), store );
+    runOf = new int[values.length];
+    int[] starts = new int[values.length + 1];
+    int runs = 0;
+    for ( int i = 0; i < values.length; ++i ) {
+      if ( i == 0 || values[i] != values[i - 1] ) {
+        starts[runs++] = i;
+      }
+      runOf[i] = runs - 1;
+    }
+    starts[runs] = values.length;
+    runStart = Arrays.copyOf( starts, runs + 1 );
+  }
+
+  /*
+   * The root is the n smallest elements of S, none of which differs from the root
+   */
+  public static SubsetNode buildTree( long[] values, int n ) {
+    SubsetNode root = SubsetCursor.buildTree( values, n );
+    root.limit = n;
+    return root;
+  }
+
+  /*
+   * Appends the children of the node to the given list without counting them, and returns the
+   * number that incrementList could not generate
+   */
+  public int generateChildren( SubsetNode node, List<SubsetNode> children ) {
+    int skipped = 0;
+    for ( int i = Math.min( node.limit, node.indices.length - 1 ); i >= 0; --i ) {
+      SubsetNode child = incrementList( node, i );
+      if ( child != null ) {
+        children.add( child );
+      }
+      else {
+        ++skipped;
+      }
+    }
+    return skipped;
+  }
+
+  /*
+   * Whether the node has any children, stopping at the first that incrementList generates
+   */
+  public boolean hasChildren( SubsetNode node ) {
+    for ( int i = Math.min( node.limit, node.indices.length - 1 ); i >= 0; --i ) {
+      if ( incrementList( node, i ) != null ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Replaces the element at idx with the first element of the next run, shifting along the
+   * elements already taken from that run. Returns null if the element is not the last taken from
+   * its run, or if there is no next run or it has no element to spare.
+   */
+  public SubsetNode incrementList( SubsetNode node, int idx ) {
+    int[] indices = node.indices;
+    int run = runOf[indices[idx]];
+    if ( run + 1 == runStart.length - 1 ) {
+      return null;
+    }
+    if ( idx + 1 < indices.length && runOf[indices[idx + 1]] == run ) {
+      return null;
+    }
+    int[] newIndices = indices.clone( );
+    newIndices[idx] = runStart[run + 1];
+    int i = idx + 1;
+    while ( i < indices.length && runOf[indices[i]] == run + 1 ) {
+      newIndices[i] = indices[i] + 1;
+      ++i;
+    }
+    if ( newIndices[i - 1] >= runStart[run + 2] ) {
+      return null;
+    }
+    long sum = node.sum - values[indices[idx]] + values[newIndices[idx]];
+    return new SubsetNode( newIndices, sum, idx );
+  }
+
+  /*
+   * Counts the distinct multisets of each size that can be drawn from the sorted values,
+   * saturating at Long.MAX_VALUE. counts[n] is the number of subsets in the n-sized heap.
+   */
+  public static long[] countMultisets( long[] values ) {
+    long[] counts = new long[values.length + 1];
+    counts[0] = 1;
+    int size = 0;
+    int i = 0;
+    while ( i < values.length ) {
+      int multiplicity = 1;
+      while ( i + multiplicity < values.length && values[i + multiplicity] == values[i] ) {
+        ++multiplicity;
+      }
+      size += multiplicity;
+      // Each multiset of the runs so far takes between 0 and multiplicity elements of this run
+      for ( int k = size; k > 0; --k ) {
+        long count = counts[k];
+        for ( int t = 1; t <= multiplicity && t <= k; ++t ) {
+          count = BinomialTable.saturatedAdd( count, counts[k - t] );
+        }
+        counts[k] = count;
+      }
+      i += multiplicity;
+    }
+    return counts;
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * An input set prepared once for any number of subset sum queries, from any number of threads at
+ * once.
+ *
+ * The set is sorted and scaled, and the tables a search of its Subset Heaps reads (the binomial
+ * coefficients or multiset counts, the mirrored values and the sums of the smallest and largest
+ * values of each size) are derived, when it is prepared. Each query then makes its own search
+ * over those tables, walking Subset Heaps of its own, so queries share nothing that is written to
+ * and take no locks. The least and greatest sums of any subset are also kept, so that a target
+ * outside of them is answered without a search.
+ *
+ * A prepared set is made by SubsetTreeSolver.prepare, and searches with the settings the solver
+ * had at the time. Its listener, if it has one, is called from every querying thread. The set
+ * keeps a copy of the input it was prepared from, which it never hands out, so that neither
+ * later changes to that input nor changes made through the results of getValues can reach the
+ * tables that concurrent queries read.
+ */
+
+import java.util.stream.Stream;
+
+public final class PreparedSubsetSum {
+
+  private final ScaledInput input;
+  // The search whose tables and settings every query shares, which is never searched itself
+  private final SubsetSum prepared;
+  // The least and greatest sums of a non-empty subset of the unscaled values
+  private final long lowestSum;
+  private final long highestSum;
+
+  public PreparedSubsetSum( ScaledInput input, SubsetTreeSolver settings ) {
+    this.input = new ScaledInput( input.values );
+    SubsetSum search = new SubsetSum( this.input );
+    search.mode = settings.mode;
+    search.dualEnded = settings.dualEnded;
+    search.multiset = settings.multiset;
+    search.cheapestFirst = settings.cheapestFirst;
+    search.offHeap = settings.offHeap;
+    search.listener = settings.listener;
+    // Derive the multiset counts now rather than on the first query
+    search.treeSize( 0 );
+    this.prepared = search;
+    long negatives = 0;
+    long positives = 0;
+    for ( long value : this.input.values ) {
+      if ( value < 0 ) {
+        negatives += value;
+      }
+      else {
+        positives += value;
+      }
+    }
+    long[] values = this.input.values;
+    int size = values.length;
+    // A set of values of one sign has no subset nearer zero than its value nearest zero
+    this.lowestSum = size == 0 || values[0] < 0 ? negatives : values[0];
+    this.highestSum = size == 0 || values[size - 1] > 0 ? positives : values[size - 1];
+  }
+
+  /*
+   * The values of the set in sorted order, to which the indices of a result refer, as a copy
+   */
+  public long[] getValues( ) {
+    return input.values.clone( );
+  }
+
+  public int size( ) {
+    return input.size( );
+  }
+
+  public long getLowestSum( ) {
+    return lowestSum;
+  }
+
+  public long getHighestSum( ) {
+    return highestSum;
+  }
+
+  /*
+   * Whether the target lies between the least and greatest sums of a subset, outside of which no
+   * subset sums to it
+   */
+  public boolean inRange( long target ) {
+    return size( ) > 0 && target >= lowestSum && target <= highestSum;
+  }
+
+  /*
+   * Returns a subset that sums to the target, or null if no subset does. As with
+   * SubsetTreeSolver, the subset is one of the smallest size unless cheapestFirst was set.
+   */
+  public SubsetSumResult solve( long target ) {
+    if ( !inRange( target ) ) {
+      return null;
+    }
+    SubsetNode node = new SubsetSum( prepared ).search( target );
+    return node == null ? null : new SubsetSumResult( input, node.getIndices( ) );
+  }
+
+  /*
+   * Returns a subset for each of the targets, which must be sorted in non-decreasing order, with
+   * null for each target that no subset sums to. Each Subset Heap is walked once for all of them.
+   */
+  public SubsetSumResult[] solveAll( long[] targets ) {
+    SubsetSumResult[] results = new SubsetSumResult[targets.length];
+    if ( size( ) == 0 ) {
+      return results;
+    }
+    SubsetNode[] nodes = new SubsetSum( prepared ).searchAll( targets );
+    for ( int i = 0; i < nodes.length; ++i ) {
+      if ( nodes[i] != null ) {
+        results[i] = new SubsetSumResult( input, nodes[i].getIndices( ) );
+      }
+    }
+    return results;
+  }
+
+  /*
+   * Streams every subset that sums to the target, in increasing order of size, searching only as
+   * far as the stream is consumed. The stream itself is for one thread.
+   */
+  public Stream<SubsetSumResult> solveEvery( long target ) {
+    if ( !inRange( target ) ) {
+      return Stream.empty( );
+    }
+    return new SubsetSum( prepared ).solutionStream( target )
+                                    .map( node -> new SubsetSumResult( input, node.getIndices( ) ) );
+  }
+
+  /*
+   * Returns the subset whose sum is nearest the target, or the nearest found before the budget
+   * ran out, which the budget reports. Returns null only if the set is empty.
+   */
+  public SubsetSumResult solveClosest( long target, SearchBudget budget ) {
+    if ( size( ) == 0 ) {
+      return null;
+    }
+    SubsetNode node = new SubsetSum( prepared ).searchClosest( target, budget );
+    return new SubsetSumResult( input, node.getIndices( ) );
+  }
+
+}
@@ -0,0 +1,69 @@
+/**
+ * An input set prepared for the subset sum solvers:
+ *   1. Sort the set
+ *   2. Offset each element by the absolute value of the least element plus one, if the least
+ *      element is not positive, so that every scaled element is positive
+ * A subset of n scaled elements sums to its unscaled sum plus n times the offset.
+ *
+ * Every sum of scaled elements, and every sum of unscaled elements, must fit in a long. An input
+ * set for which that is not so is rejected with an ArithmeticException.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ScaledInput {
+
+  public long[] values;
+  public long offset = 0;
+  public long[] scaled;
+
+  public ScaledInput( List<Integer> input ) {
+    this( toArray( input ) );
+  }
+
+  public ScaledInput( long[] input ) {
+    // 1. Sort the set
+    values = input.clone( );
+    Arrays.sort( values );
+
+    // 2. Scale the set so that there are no negative elements, with the offset being stored
+    scaled = values.clone( );
+    try {
+      if ( values.length > 0 && values[0] <= 0 ) {
+        offset = Math.addExact( Math.negateExact( values[0] ), 1 );
+        for ( int i = 0; i < scaled.length; ++i ) {
+          scaled[i] = Math.addExact( scaled[i], offset );
+        }
+      }
+      // The greatest sums are those of the whole set, scaled or of its absolute values. The
+      // total of the scaled set must also fall short of Long.MAX_VALUE, which stands for a
+      // target too large to fit.
+      long total = 0;
+      long magnitude = 0;
+      for ( int i = 0; i < scaled.length; ++i ) {
+        total = Math.addExact( total, scaled[i] );
+        magnitude = Math.addExact( magnitude, Math.abs( values[i] ) );
+      }
+      if ( total == Long.MAX_VALUE ) {
+        throw new ArithmeticException( );
+      }
+    }
+    catch ( ArithmeticException e ) {
+      throw new ArithmeticException( "The sums of the input set do not fit in a long" );
+    }
+  }
+
+  public int size( ) {
+    return values.length;
+  }
+
+  private static long[] toArray( List<Integer> input ) {
+    long[] values = new long[input.size( )];
+    for ( int i = 0; i < values.length; ++i ) {
+      values[i] = input.get( i );
+    }
+    return values;
+  }
+
+}
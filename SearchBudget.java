@@ -0,0 +1,64 @@
+/**
+ * A limit on how much work a search may do: a number of subsets it may visit, a deadline, or
+ * both. A search spends the budget one visited subset at a time, and once the budget has run out
+ * it stops and reports the best it has found so far.
+ *
+ * A budget is spent by one search at a time, and is used up for good: a search given a budget
+ * that has already run out visits nothing.
+ */
+
+public class SearchBudget {
+
+  // The number of subsets that may still be visited
+  public long nodes;
+  // The deadline, as a value of System.nanoTime, if timed is set
+  public long deadline;
+  public boolean timed;
+  private boolean exhausted = false;
+
+  public SearchBudget( long nodes, long deadline, boolean timed ) {
+    this.nodes = nodes;
+    this.deadline = deadline;
+    this.timed = timed;
+  }
+
+  public static SearchBudget unlimited( ) {
+    return new SearchBudget( Long.MAX_VALUE, 0, false );
+  }
+
+  public static SearchBudget ofNodes( long nodes ) {
+    return new SearchBudget( nodes, 0, false );
+  }
+
+  /*
+   * A budget that runs out the given number of milliseconds from now
+   */
+  public static SearchBudget ofMillis( long millis ) {
+    return new SearchBudget( Long.MAX_VALUE, System.nanoTime( ) + millis * 1000000L, true );
+  }
+
+  /*
+   * Spends the budget for visiting one subset. Returns false, and visits nothing, if the budget
+   * has run out.
+   */
+  public boolean spend( ) {
+    if ( exhausted ) {
+      return false;
+    }
+    if ( nodes <= 0 || ( timed && System.nanoTime( ) - deadline >= 0 ) ) {
+      exhausted = true;
+      return false;
+    }
+    --nodes;
+    return true;
+  }
+
+  /*
+   * Whether the budget has run out, in which case the search that spent it may have stopped
+   * before finding the best result
+   */
+  public boolean isExhausted( ) {
+    return exhausted;
+  }
+
+}
@@ -0,0 +1,30 @@
+/**
+ * Receives the work done by a SubsetSum search as it goes, to find out why a search is slow.
+ *
+ * A probe is one call to findKthMin or seekSum on the cursor of an n-sized Subset Tree, and is
+ * reported with the nodes that it visited, the children that it generated and those that
+ * incrementList could not generate, along with the most nodes the cursor's frontier has held so
+ * far. The search of each n-sized tree is reported once it ends, with its number of probes, the
+ * nodes visited and the wall time it took.
+ *
+ * The listener of a parallel search is called from every thread of its pool, so it must be
+ * thread-safe. NONE does nothing, and a search with NONE skips the reporting altogether.
+ */
+
+public interface SearchListener {
+
+  SearchListener NONE = new SearchListener( ) { };
+
+  default void probed( int order, long rank, long popped, long generated, long skipped,
+                       int frontierPeak ) {
+  }
+
+  /*
+   * The end of a search of the n-sized subsets in the Subset Tree chosen for them, where found
+   * tells whether a subset summing to the target was found
+   */
+  default void orderSearched( int order, HeapEnd end, long probes, long popped, long nanos,
+                              boolean found ) {
+  }
+
+}
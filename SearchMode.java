@@ -0,0 +1,28 @@
+/**
+ * How SubsetSum searches each n-sized Subset Tree for the scaled target sum.
+ *
+ * The binary and interpolation searches need every rank of the tree to be within reach of a
+ * cursor, so a tree of more than SubsetCursor.MAX_RANK subsets is always searched by THRESHOLD.
+ */
+
+public enum SearchMode {
+
+  /*
+   * A binary search over the ranks 1 to (N choose n) of the tree, probing the k'th smallest
+   * subset at each midpoint
+   */
+  BINARY,
+
+  /*
+   * A search over the same ranks that probes where a model of the distribution of the sums of
+   * the tree expects the target to be, falling back towards bisection when the model is off
+   */
+  INTERPOLATION,
+
+  /*
+   * A walk of the tree in order of increasing sum that stops at the first subset whose sum
+   * reaches the target, so that no subset summing to more than the target is ever visited
+   */
+  THRESHOLD
+
+}
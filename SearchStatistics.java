@@ -0,0 +1,85 @@
+/**
+ * A SearchListener that totals the work done by the searches it listens to, overall and for each
+ * order n, for spotting the inputs and orders that are expensive to search.
+ *
+ * It can be shared by any number of concurrent searches. Each probe adds to a handful of
+ * LongAdders, which do not contend between threads, so the statistics are cheap enough to keep
+ * for every search.
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SearchStatistics implements SearchListener {
+
+  public LongAdder probes = new LongAdder( );
+  public LongAdder popped = new LongAdder( );
+  public LongAdder generated = new LongAdder( );
+  public LongAdder skipped = new LongAdder( );
+  public LongAccumulator frontierPeak = new LongAccumulator( Math::max, 0 );
+  public LongAdder orders = new LongAdder( );
+  public LongAdder nanos = new LongAdder( );
+  public ConcurrentHashMap<Integer, Order> byOrder = new ConcurrentHashMap<Integer, Order>( );
+
+  public void probed( int order, long rank, long popped, long generated, long skipped,
+                      int frontierPeak ) {
+    this.probes.increment( );
+    this.popped.add( popped );
+    this.generated.add( generated );
+    this.skipped.add( skipped );
+    this.frontierPeak.accumulate( frontierPeak );
+  }
+
+  public void orderSearched( int order, HeapEnd end, long probes, long popped, long nanos,
+                             boolean found ) {
+    this.orders.increment( );
+    this.nanos.add( nanos );
+    Order statistics = byOrder.computeIfAbsent( order, n -> new Order( ) );
+    statistics.searches.increment( );
+    statistics.probes.add( probes );
+    statistics.popped.add( popped );
+    statistics.nanos.add( nanos );
+    if ( found ) {
+      statistics.found.increment( );
+    }
+  }
+
+  /*
+   * One line of totals, followed by one line for each order that has been searched
+   */
+  public String toString( ) {
+    StringBuilder text = new StringBuilder( );
+    text.append( "probes=" ).append( probes.sum( ) )
+        .append( " popped=" ).append( popped.sum( ) )
+        .append( " generated=" ).append( generated.sum( ) )
+        .append( " skipped=" ).append( skipped.sum( ) )
+        .append( " frontierPeak=" ).append( frontierPeak.get( ) )
+        .append( " orders=" ).append( orders.sum( ) )
+        .append( " ms=" ).append( nanos.sum( ) / 1000000 );
+    byOrder.keySet( ).stream( ).sorted( ).forEach( n -> {
+      Order statistics = byOrder.get( n );
+      text.append( "\n  n=" ).append( n )
+          .append( " searches=" ).append( statistics.searches.sum( ) )
+          .append( " found=" ).append( statistics.found.sum( ) )
+          .append( " probes=" ).append( statistics.probes.sum( ) )
+          .append( " popped=" ).append( statistics.popped.sum( ) )
+          .append( " ms=" ).append( statistics.nanos.sum( ) / 1000000 );
+    } );
+    return text.toString( );
+  }
+
+  /*
+   * The totals of the searches of a single order n
+   */
+  public static class Order {
+
+    public LongAdder searches = new LongAdder( );
+    public LongAdder found = new LongAdder( );
+    public LongAdder probes = new LongAdder( );
+    public LongAdder popped = new LongAdder( );
+    public LongAdder nanos = new LongAdder( );
+
+  }
+
+}
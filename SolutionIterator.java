@@ -0,0 +1,115 @@
+/**
+ * Iterates lazily over every subset that sums to a target, for a range of orders n, in
+ * increasing order of n. Nothing is searched until the next subset is asked for, and only as
+ * much of each n-sized Subset Tree is walked as is needed to produce it, so a consumer that stops
+ * early, or takes subsets more slowly than they could be found, holds the search back.
+ *
+ * The subsets summing to the target occupy a run of consecutive ranks in the sum order of each
+ * tree. The iterator seeks to the first of them once, then steps through the run rank by rank:
+ * ranks the cursor has already visited are read from its visited prefix, and the rest are
+ * visited one at a time only while the next subset in the frontier still has the target sum.
+ *
+ * A consumer that stops early closes the iterator, which cancels the walk of the cursor it holds
+ * and yields nothing more. A cursor kept by the cache is resumed by the next search handed it.
+ */
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class SolutionIterator implements Iterator<SubsetNode>, AutoCloseable {
+
+  public SubsetSum search;
+  public long target;
+  public int order;
+  public int lastOrder;
+  private SubsetCursor cursor;
+  private HeapEnd end;
+  private long heapTarget;
+  // The rank in the cursor's sum order of the next subset that may have the target sum
+  private int rank;
+  private SubsetNode next;
+
+  /*
+   * Iterates over the subsets of sizes firstOrder to lastOrder that sum to the target, which is
+   * unscaled
+   */
+  public SolutionIterator( SubsetSum search, long target, int firstOrder, int lastOrder ) {
+    this.search = search;
+    this.target = target;
+    this.order = firstOrder - 1;
+    this.lastOrder = lastOrder;
+  }
+
+  public boolean hasNext( ) {
+    if ( next == null ) {
+      next = advance( );
+    }
+    return next != null;
+  }
+
+  public SubsetNode next( ) {
+    if ( !hasNext( ) ) {
+      throw new NoSuchElementException( );
+    }
+    SubsetNode node = next;
+    next = null;
+    return node;
+  }
+
+  /*
+   * Cancels the walk of the cursor being stepped through, if any, and ends the iteration
+   */
+  public void close( ) {
+    if ( cursor != null ) {
+      cursor.cancel( );
+      cursor = null;
+    }
+    order = lastOrder;
+    next = null;
+  }
+
+  private SubsetNode advance( ) {
+    while ( true ) {
+      if ( cursor != null ) {
+        SubsetNode node = step( );
+        if ( node != null ) {
+          return search.translate( node, order, end );
+        }
+        cursor = null;
+      }
+      if ( order >= lastOrder ) {
+        return null;
+      }
+      ++order;
+      long scaledTarget = search.scaleTarget( target, order );
+      if ( !search.feasible( order, scaledTarget ) ) {
+        continue;
+      }
+      end = search.chooseEnd( order, scaledTarget );
+      heapTarget = search.heapTarget( order, end, scaledTarget );
+      cursor = search.cursor( order, end );
+      // Seek to the first subset with the target sum, if there is one
+      rank = cursor.seekSum( heapTarget ) == null ? 0 : cursor.rankOf( heapTarget );
+    }
+  }
+
+  /*
+   * Returns the subset at the current rank if it has the target sum, and moves on to the next
+   */
+  private SubsetNode step( ) {
+    if ( rank < 1 ) {
+      return null;
+    }
+    if ( rank > cursor.getPosition( ) ) {
+      if ( !cursor.hasNext( ) || cursor.isCancelled( ) || cursor.peekSum( ) != heapTarget ) {
+        return null;
+      }
+      cursor.next( );
+    }
+    if ( cursor.getVisitedSum( rank ) != heapTarget ) {
+      return null;
+    }
+    return cursor.getVisited( rank++ );
+  }
+
+}
@@ -0,0 +1,468 @@
+/**
+ * Keeps the nodes of a cursor in files, for walks that outgrow memory, and checkpoints them so
+ * that a walk cut short by the end of the process can be resumed by the next.
+ *
+ * The visited nodes are appended to a file of SubsetRecords, mapped into memory. The frontier is
+ * an external-memory priority queue: up to memoryNodes of it are kept in memory, and whenever
+ * that many are, the half with the greater sums, which will be visited last, is written out in
+ * order of sum as a run of records in a file of its own. A node is taken from whichever holds
+ * the smallest sum, the nodes in memory or the first remaining node of one of the runs.
+ *
+ * A checkpoint writes the number of visited nodes, the position reached in each run and the
+ * nodes of the frontier in memory, of which there are fewer than memoryNodes, to a manifest,
+ * which replaces the previous one in a single move. Checkpoints therefore add no runs of their
+ * own, however often they are taken. The files of the visited nodes and the runs are only ever appended to or read
+ * from, so the manifest describes the walk as it stood at the checkpoint even when the walk has
+ * gone on since: opening the directory again discards anything visited or spilled after it. A
+ * run that has been used up is deleted at once, unless the last checkpoint refers to it, in which
+ * case it is deleted by the next checkpoint.
+ *
+ * A directory must only be opened by one store at a time.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class SpillingSubsetStore implements SubsetStore {
+
+  private static final int MAGIC = 0x53535431;
+
+  public Path directory;
+  public int order;
+  // The number of frontier nodes kept in memory before half of them are spilled
+  public int memoryNodes;
+  // The number of nodes visited between checkpoints, or 0 for no periodic checkpoints
+  public long checkpointInterval;
+  private long[] values;
+  private boolean multiset;
+  private HeapSubsetStore memory;
+  private FileChannel visitedFile;
+  private SubsetRecords visitedNodes;
+  private int visitedCount = 0;
+  // The runs by handle, with those used up set to null, and their first remaining sums
+  private ArrayList<Run> runs = new ArrayList<Run>( );
+  private SubsetFrontier runHeads = new SubsetFrontier( );
+  private long runNodes = 0;
+  private int nextRun = 0;
+  // The live runs in order of handle, and the number of their nodes before each, by which
+  // frontierNode finds a node; null whenever the runs have changed since it was last used
+  private Run[] indexedRuns = null;
+  private long[] indexedOffsets;
+  // The runs used up since the last checkpoint that it still refers to
+  private ArrayList<Run> retired = new ArrayList<Run>( );
+
+  /*
+   * Opens the store of the n-sized heap of the sorted values in the directory, resuming the walk
+   * checkpointed there if there is one. Throws IllegalArgumentException if the checkpoint is of
+   * a different heap, and UncheckedIOException if its manifest is cut short or its files hold
+   * fewer nodes than the manifest says.
+   */
+  public SpillingSubsetStore( Path directory, long[] values, int n, boolean multiset,
+                              int memoryNodes, long checkpointInterval ) {
+    this.directory = directory;
+    this.order = n;
+    this.values = values;
+    this.multiset = multiset;
+    this.memoryNodes = Math.max( memoryNodes, 2 );
+    this.checkpointInterval = checkpointInterval;
+    this.memory = new HeapSubsetStore( n );
+    try {
+      Files.createDirectories( directory );
+      visitedFile = FileChannel.open( directory.resolve( "visited.bin" ), StandardOpenOption.CREATE,
+                                      StandardOpenOption.READ, StandardOpenOption.WRITE );
+      visitedNodes = new SubsetRecords( n, visitedFile );
+      Path manifest = directory.resolve( "manifest" );
+      if ( Files.exists( manifest ) ) {
+        resume( manifest );
+      }
+      // Runs spilled after the last checkpoint, or before it and used up, are not needed
+      try ( DirectoryStream<Path> files = Files.newDirectoryStream( directory, "run-*.bin" ) ) {
+        for ( Path file : files ) {
+          if ( !referenced( file.getFileName( ).toString( ) ) ) {
+            Files.delete( file );
+          }
+        }
+      }
+    }
+    catch ( IOException e ) {
+      throw new UncheckedIOException( e );
+    }
+  }
+
+  private void resume( Path manifest ) throws IOException {
+    try ( DataInputStream in = new DataInputStream(
+        new BufferedInputStream( Files.newInputStream( manifest ) ) ) ) {
+      boolean same = in.readInt( ) == MAGIC && in.readInt( ) == order
+                     && in.readBoolean( ) == multiset && in.readInt( ) == values.length;
+      for ( int i = 0; same && i < values.length; ++i ) {
+        same = in.readLong( ) == values[i];
+      }
+      if ( !same ) {
+        throw new IllegalArgumentException( "The checkpoint in " + directory
+                                            + " is of a different heap" );
+      }
+      visitedCount = in.readInt( );
+      nextRun = in.readInt( );
+      int count = in.readInt( );
+      for ( int i = 0; i < count; ++i ) {
+        int id = in.readInt( );
+        int next = in.readInt( );
+        int size = in.readInt( );
+        Run run = new Run( id, size, false );
+        if ( run.file.size( ) < (long) size * run.records.width ) {
+          throw new IOException( "The checkpoint in " + directory + " is incomplete: "
+                                 + run.name( ) + " holds fewer than " + size + " nodes" );
+        }
+        run.next = next;
+        run.size = size;
+        run.forced = true;
+        run.checkpointed = true;
+        run.records.ensure( size - 1 );
+        addRun( run );
+      }
+      int inMemory = in.readInt( );
+      for ( int i = 0; i < inMemory; ++i ) {
+        long sum = in.readLong( );
+        int limit = in.readInt( );
+        int[] indices = new int[order];
+        for ( int j = 0; j < order; ++j ) {
+          indices[j] = in.readInt( );
+        }
+        push( new SubsetNode( indices, sum, limit ) );
+      }
+      if ( in.read( ) != -1 ) {
+        throw new IOException( "The manifest in " + directory + " has trailing data" );
+      }
+    }
+    // The mapped files are only ever extended, so one shorter than the manifest says has been
+    // truncated or replaced since the checkpoint, and reading it would resume a different walk
+    if ( visitedFile.size( ) < (long) visitedCount * visitedNodes.width ) {
+      throw new IOException( "The checkpoint in " + directory + " is incomplete: visited.bin "
+                             + "holds fewer than " + visitedCount + " nodes" );
+    }
+    if ( visitedCount > 0 ) {
+      visitedNodes.ensure( visitedCount - 1 );
+    }
+  }
+
+  private boolean referenced( String name ) {
+    for ( Run run : runs ) {
+      if ( run != null && run.name( ).equals( name ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public void push( SubsetNode node ) {
+    memory.push( node );
+    if ( memory.frontierSize( ) >= memoryNodes ) {
+      spill( memoryNodes / 2 );
+    }
+  }
+
+  /*
+   * Writes all but the given number of the nodes in memory with the smallest sums out as a run
+   */
+  private void spill( int keep ) {
+    HeapSubsetStore kept = new HeapSubsetStore( order );
+    for ( int i = 0; i < keep; ++i ) {
+      kept.push( memory.poll( ) );
+    }
+    if ( memory.frontierSize( ) > 0 ) {
+      Run run = new Run( nextRun++, memory.frontierSize( ), true );
+      for ( SubsetNode node = memory.poll( ); node != null; node = memory.poll( ) ) {
+        run.records.put( run.size++, node );
+      }
+      addRun( run );
+    }
+    memory = kept;
+  }
+
+  private void addRun( Run run ) {
+    indexedRuns = null;
+    if ( run.next == run.size ) {
+      retire( run );
+      return;
+    }
+    runHeads.add( run.records.sum( run.next ), runs.size( ) );
+    runs.add( run );
+    runNodes += run.size - run.next;
+  }
+
+  /*
+   * Whether the next node is the first remaining node of a run rather than one in memory
+   */
+  private boolean fromRun( ) {
+    if ( runHeads.isEmpty( ) ) {
+      return false;
+    }
+    return memory.frontierSize( ) == 0 || runHeads.peekSum( ) < memory.peekSum( );
+  }
+
+  public SubsetNode poll( ) {
+    if ( !fromRun( ) ) {
+      return memory.poll( );
+    }
+    int handle = runHeads.poll( );
+    Run run = runs.get( handle );
+    SubsetNode node = run.records.get( run.next++ );
+    indexedRuns = null;
+    --runNodes;
+    if ( run.next < run.size ) {
+      runHeads.add( run.records.sum( run.next ), handle );
+    }
+    else {
+      runs.set( handle, null );
+      retire( run );
+    }
+    return node;
+  }
+
+  /*
+   * Lets go of a run that has been used up, deleting it now unless the last checkpoint refers to
+   * it, in which case it is kept until the next one
+   */
+  private void retire( Run run ) {
+    if ( run.checkpointed ) {
+      retired.add( run );
+      return;
+    }
+    try {
+      run.close( );
+      Files.deleteIfExists( directory.resolve( run.name( ) ) );
+    }
+    catch ( IOException e ) {
+      throw new UncheckedIOException( e );
+    }
+  }
+
+  public SubsetNode peek( ) {
+    if ( !fromRun( ) ) {
+      return memory.peek( );
+    }
+    Run run = runs.get( runHeads.peek( ) );
+    return run.records.get( run.next );
+  }
+
+  public long peekSum( ) {
+    return fromRun( ) ? runHeads.peekSum( ) : memory.peekSum( );
+  }
+
+  public int frontierSize( ) {
+    return (int) Math.min( memory.frontierSize( ) + runNodes, Integer.MAX_VALUE );
+  }
+
+  public SubsetNode frontierNode( int i ) {
+    if ( i < memory.frontierSize( ) ) {
+      return memory.frontierNode( i );
+    }
+    if ( indexedRuns == null ) {
+      indexRuns( );
+    }
+    long j = i - memory.frontierSize( );
+    // The last run with no more than j nodes before it, as no live run is empty
+    int r = Arrays.binarySearch( indexedOffsets, j );
+    r = r >= 0 ? r : -r - 2;
+    if ( r >= indexedRuns.length ) {
+      throw new IndexOutOfBoundsException( "Frontier node " + i );
+    }
+    Run run = indexedRuns[r];
+    return run.records.get( run.next + (int) ( j - indexedOffsets[r] ) );
+  }
+
+  private void indexRuns( ) {
+    int count = 0;
+    for ( Run run : runs ) {
+      count += run != null ? 1 : 0;
+    }
+    indexedRuns = new Run[count];
+    indexedOffsets = new long[count + 1];
+    count = 0;
+    for ( Run run : runs ) {
+      if ( run != null ) {
+        indexedRuns[count] = run;
+        indexedOffsets[count + 1] = indexedOffsets[count] + run.size - run.next;
+        ++count;
+      }
+    }
+  }
+
+  public void append( SubsetNode node ) {
+    visitedNodes.put( visitedCount++, node );
+    if ( checkpointInterval > 0 && visitedCount % checkpointInterval == 0 ) {
+      checkpoint( );
+    }
+  }
+
+  public int visitedCount( ) {
+    return visitedCount;
+  }
+
+  public SubsetNode visited( int rank ) {
+    return visitedNodes.get( rank - 1 );
+  }
+
+  public long visitedSum( int rank ) {
+    return visitedNodes.sum( rank - 1 );
+  }
+
+  /*
+   * Writes the state of the walk to the directory, from which it is resumed when the directory
+   * is opened again
+   */
+  public void checkpoint( ) {
+    try {
+      visitedNodes.force( visitedCount );
+      for ( Run run : runs ) {
+        if ( run != null ) {
+          run.force( );
+        }
+      }
+      Path temporary = directory.resolve( "manifest.tmp" );
+      try ( DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream( Files.newOutputStream( temporary ) ) ) ) {
+        out.writeInt( MAGIC );
+        out.writeInt( order );
+        out.writeBoolean( multiset );
+        out.writeInt( values.length );
+        for ( long value : values ) {
+          out.writeLong( value );
+        }
+        out.writeInt( visitedCount );
+        out.writeInt( nextRun );
+        int count = 0;
+        for ( Run run : runs ) {
+          count += run != null ? 1 : 0;
+        }
+        out.writeInt( count );
+        for ( Run run : runs ) {
+          if ( run != null ) {
+            out.writeInt( run.id );
+            out.writeInt( run.next );
+            out.writeInt( run.size );
+          }
+        }
+        out.writeInt( memory.frontierSize( ) );
+        for ( int i = 0; i < memory.frontierSize( ); ++i ) {
+          SubsetNode node = memory.frontierNode( i );
+          out.writeLong( node.sum );
+          out.writeInt( node.limit );
+          for ( int index : node.indices ) {
+            out.writeInt( index );
+          }
+        }
+      }
+      Files.move( temporary, directory.resolve( "manifest" ), StandardCopyOption.REPLACE_EXISTING,
+                  StandardCopyOption.ATOMIC_MOVE );
+      for ( Run run : runs ) {
+        if ( run != null ) {
+          run.checkpointed = true;
+        }
+      }
+      for ( Run run : retired ) {
+        run.close( );
+        Files.deleteIfExists( directory.resolve( run.name( ) ) );
+      }
+      retired.clear( );
+    }
+    catch ( IOException e ) {
+      throw new UncheckedIOException( e );
+    }
+  }
+
+  /*
+   * Deletes the files of the store, which must not be used afterwards
+   */
+  public void delete( ) {
+    try {
+      visitedFile.close( );
+      for ( Run run : runs ) {
+        if ( run != null ) {
+          run.close( );
+          Files.deleteIfExists( directory.resolve( run.name( ) ) );
+        }
+      }
+      for ( Run run : retired ) {
+        run.close( );
+        Files.deleteIfExists( directory.resolve( run.name( ) ) );
+      }
+      Files.deleteIfExists( directory.resolve( "visited.bin" ) );
+      Files.deleteIfExists( directory.resolve( "manifest" ) );
+      Files.deleteIfExists( directory );
+    }
+    catch ( IOException e ) {
+      throw new UncheckedIOException( e );
+    }
+  }
+
+  public long memoryBytes( ) {
+    return memory.memoryBytes( ) + 12L * runHeads.sums.length + 8L * runs.size( );
+  }
+
+  /*
+   * A run of frontier nodes in order of sum, in a file of records of its own
+   */
+  private class Run {
+
+    private int id;
+    private FileChannel file;
+    private SubsetRecords records;
+    private int next = 0;
+    private int size = 0;
+    private boolean forced = false;
+    // Whether the last checkpoint refers to the run
+    private boolean checkpointed = false;
+
+    public Run( int id, int capacity, boolean create ) {
+      this.id = id;
+      try {
+        if ( create ) {
+          file = FileChannel.open( directory.resolve( name( ) ), StandardOpenOption.CREATE,
+                                   StandardOpenOption.TRUNCATE_EXISTING,
+                                   StandardOpenOption.READ, StandardOpenOption.WRITE );
+        }
+        else {
+          file = FileChannel.open( directory.resolve( name( ) ), StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE );
+        }
+      }
+      catch ( IOException e ) {
+        throw new UncheckedIOException( e );
+      }
+      records = new SubsetRecords( order, file, capacity );
+    }
+
+    public String name( ) {
+      return "run-" + id + ".bin";
+    }
+
+    /*
+     * Writes the run back to its file, which only needs doing once as a run is never changed
+     */
+    public void force( ) {
+      if ( !forced ) {
+        records.force( size );
+        forced = true;
+      }
+    }
+
+    public void close( ) throws IOException {
+      file.close( );
+    }
+
+  }
+
+}
@@ -0,0 +1,52 @@
+/**
+ * Counts the subsets of a virtual Subset Heap that sum to less than a bound, without keeping
+ * them.
+ *
+ * A cursor keeps every subset it visits, so that they can be looked up again, which costs memory
+ * in proportion to the number of subsets visited. When only their number is wanted, the counter
+ * carries on from the cursor's frontier without disturbing the cursor, keeping nothing but the
+ * nodes still to be counted: it generates children with generateChildren, which leaves the
+ * cursor's counts of its work as they are. Since the heap property means that every ancestor of a subset sums
+ * to no more than the subset itself, the subsets below the bound form a subtree from the root,
+ * which can be counted in any order: the counter walks it depth first from a stack, rather than
+ * in order of sum from a frontier, and never generates the children of a subset beyond the
+ * bound.
+ */
+
+import java.util.ArrayList;
+
+public class SubsetCounter {
+
+  /*
+   * The number of subsets in the heap walked by the cursor that sum to less than the sum
+   */
+  public static long countBelow( SubsetCursor cursor, long sum ) {
+    if ( cursor.covers( sum ) ) {
+      int rank = cursor.rankOf( sum );
+      return rank > 0 ? rank - 1 : -rank - 1;
+    }
+    // Every visited subset sums to less than the sum, so only the frontier remains to be walked
+    long count = cursor.getPosition( );
+    ArrayList<SubsetNode> stack = new ArrayList<SubsetNode>( );
+    for ( int i = 0; i < cursor.store.frontierSize( ); ++i ) {
+      SubsetNode node = cursor.store.frontierNode( i );
+      if ( node.sum < sum ) {
+        stack.add( node );
+      }
+    }
+    ArrayList<SubsetNode> children = new ArrayList<SubsetNode>( );
+    while ( !stack.isEmpty( ) ) {
+      SubsetNode node = stack.remove( stack.size( ) - 1 );
+      ++count;
+      children.clear( );
+      cursor.generateChildren( node, children );
+      for ( int i = 0; i < children.size( ); ++i ) {
+        if ( children.get( i ).sum < sum ) {
+          stack.add( children.get( i ) );
+        }
+      }
+    }
+    return count;
+  }
+
+}
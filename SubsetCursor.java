@@ -0,0 +1,336 @@
+/**
+ * A resumable cursor over a virtual Subset Heap of order n.
+ *
+ * The cursor owns the frontier of the heap (the nodes that have been generated but not yet
+ * visited) along with every node that has already been visited, in the order in which it was
+ * visited. Since the Subset Heap is a min-heap, the visited nodes are the subsets of the heap in
+ * non-decreasing order of their sums, so the k'th smallest subset is the k'th visited node.
+ *
+ * Asking for the k'th smallest subset only visits the nodes that have not already been visited
+ * by an earlier call. A rank at or below the number of visited nodes is answered directly, and a
+ * greater rank resumes the walk from the frontier where the last call stopped, so that repeated
+ * lookups on the same heap walk it at most once.
+ *
+ * The nodes themselves are kept by a SubsetStore, on the Java heap by default or outside of it in
+ * a DirectSubsetStore. A rank that has been visited is looked up in constant time, and a sum that
+ * lies within the visited prefix is looked up by a binary search over the sums, neither of which
+ * touches the frontier.
+ *
+ * The cursor counts the work it does as it goes: the nodes it has visited, the children it has
+ * generated and those that incrementList could not generate, the most nodes its frontier has
+ * held, and the probes (calls to findKthMin or seekSum) made of it. The counts only ever grow,
+ * so the work done by a call is the difference between the counts before and after it.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SubsetCursor {
+
+  // The greatest rank a cursor can visit, as its visited nodes are counted in an int
+  public static final long MAX_RANK = Integer.MAX_VALUE - 8;
+
+  public long[] values;
+  public int order;
+  public SubsetNode root;
+  public SubsetStore store;
+  public long popped = 0;
+  public long generated = 0;
+  public long skipped = 0;
+  public int frontierPeak = 0;
+  public long probes = 0;
+  private ArrayList<SubsetNode> children = new ArrayList<SubsetNode>( );
+  private volatile boolean cancelled = false;
+
+  /*
+   * The values must be sorted in non-decreasing order
+   */
+  public SubsetCursor( long[] values, SubsetNode tree ) {
+    this( values, tree, new HeapSubsetStore( tree.size( ) ) );
+  }
+
+  /*
+   * A store that already holds nodes, such as one resumed from a checkpoint, is walked on from
+   * where it stands
+   */
+  public SubsetCursor( long[] values, SubsetNode tree, SubsetStore store ) {
+    this.values = values;
+    this.order = tree.size( );
+    this.root = tree;
+    this.store = store;
+    if ( store.frontierSize( ) == 0 && store.visitedCount( ) == 0 ) {
+      store.push( tree );
+    }
+  }
+
+  /*
+   * Creates a cursor over the n-sized heap of the sorted values, over its distinct multisets if
+   * multiset is set, keeping its nodes off the Java heap if offHeap is set
+   */
+  public static SubsetCursor create( long[] values, int n, boolean multiset, boolean offHeap ) {
+    SubsetStore store = offHeap ? new DirectSubsetStore( n ) : new HeapSubsetStore( n );
+    if ( multiset ) {
+      return new MultisetCursor( values, n, store );
+    }
+    return new SubsetCursor( values, buildTree( values, n ), store );
+  }
+
+  /*
+   * 2. Set the root node to the n smallest elements of S
+   */
+  public static SubsetNode buildTree( long[] values, int n ) {
+    int[] idcs = new int[n];
+    long sum = 0;
+    for ( int i = 0; i < n; ++i ) {
+      idcs[i] = i;
+      sum += values[i];
+    }
+    return new SubsetNode( idcs, sum, 0 );
+  }
+
+  /*
+   * In this case, the algorithm terminates after the first layer of chilren are created;
+   * the recursive case is not run
+   */
+  public List<SubsetNode> buildChildren( SubsetNode node ) {
+    ArrayList<SubsetNode> children = new ArrayList<SubsetNode>( );
+    buildChildren( node, children );
+    return children;
+  }
+
+  /*
+   * Appends the children of the node to the given list, counting them as generated or skipped
+   */
+  public void buildChildren( SubsetNode node, List<SubsetNode> children ) {
+    int before = children.size( );
+    skipped += generateChildren( node, children );
+    generated += children.size( ) - before;
+  }
+
+  /*
+   * Appends the children of the node to the given list without counting them, and returns the
+   * number that incrementList could not generate. Nothing in the cursor is changed, so the
+   * children of any node may be generated while the cursor is walked by another thread.
+   */
+  public int generateChildren( SubsetNode node, List<SubsetNode> children ) {
+    int[] indices = node.indices;
+
+    // 6. The algorithm terminates when no additional incrementations can be made (i.e. when the
+    //    greatest element in the subset is equal to the greatest element in S).
+    if ( indices[indices.length - 1] == values.length - 1 ) {
+      return 0;
+    }
+
+    // 3. - 5. Replace the element at each index from the greatest down to the limit of the
+    //    parent with the next greatest element in S, resolving any conflicts along the way
+    int skipped = 0;
+    for ( int i = indices.length - 1; i >= node.limit; --i ) {
+      SubsetNode child = incrementList( node, i );
+      if ( child != null ) {
+        children.add( child );
+      }
+      else {
+        ++skipped;
+      }
+    }
+    return skipped;
+  }
+
+  /*
+   * Whether the node has any children, without generating them. The greatest element can always
+   * be replaced unless it is the greatest element in S, and the limit of a node is never above it.
+   */
+  public boolean hasChildren( SubsetNode node ) {
+    return node.indices[node.indices.length - 1] < values.length - 1;
+  }
+
+  public SubsetNode incrementList( SubsetNode node, int idx ) {
+    int[] indices = node.indices;
+    int[] newIndices = indices.clone( );
+    int i = idx;
+    do {
+      newIndices[i] = indices[i] + 1;
+      ++i;
+    } while ( i < indices.length && newIndices[i - 1] == indices[i] );
+    if ( newIndices[newIndices.length - 1] >= values.length ) {
+      return null;
+    }
+    // Each conflicting element is replaced by the one the previous replacement displaced, so
+    // the child only loses the element at idx and gains the one after the last replaced element
+    long sum = node.sum - values[indices[idx]] + values[newIndices[i - 1]];
+    return new SubsetNode( newIndices, sum, idx );
+  }
+
+  public boolean hasNext( ) {
+    return store.frontierSize( ) > 0;
+  }
+
+  /*
+   * Returns the next smallest subset without visiting it, or null if the heap is exhausted
+   */
+  public SubsetNode peek( ) {
+    return store.peek( );
+  }
+
+  /*
+   * The sum of the next smallest subset, which must exist
+   */
+  public long peekSum( ) {
+    return store.peekSum( );
+  }
+
+  /*
+   * Visits the next smallest subset, generating its children into the frontier
+   */
+  public SubsetNode next( ) {
+    SubsetNode node = store.poll( );
+    if ( node == null ) {
+      return null;
+    }
+    children.clear( );
+    buildChildren( node, children );
+    for ( int i = 0; i < children.size( ); ++i ) {
+      store.push( children.get( i ) );
+    }
+    store.append( node );
+    ++popped;
+    if ( store.frontierSize( ) > frontierPeak ) {
+      frontierPeak = store.frontierSize( );
+    }
+    return node;
+  }
+
+  /*
+   * Stops any walk in progress on this cursor, from any thread. Once cancelled, a cursor only
+   * answers ranks it has already visited.
+   */
+  public void cancel( ) {
+    cancelled = true;
+  }
+
+  public boolean isCancelled( ) {
+    return cancelled;
+  }
+
+  /*
+   * Allows a cancelled cursor to walk again, such as when it is reused by a later search
+   */
+  public void resume( ) {
+    cancelled = false;
+  }
+
+  /*
+   * The number of subsets that have been visited so far
+   */
+  public int getPosition( ) {
+    return store.visitedCount( );
+  }
+
+  /*
+   * Returns the k'th smallest subset (1-based), resuming the walk only if k is beyond the
+   * current position. Returns null if the heap holds fewer than k subsets or the cursor was
+   * cancelled before reaching the k'th. Throws IllegalArgumentException if k is beyond the
+   * number of subsets a cursor can hold.
+   */
+  public SubsetNode findKthMin( long k ) {
+    if ( k > MAX_RANK ) {
+      throw new IllegalArgumentException( "Rank " + k + " is beyond the reach of a cursor" );
+    }
+    ++probes;
+    while ( getPosition( ) < k && hasNext( ) && !cancelled ) {
+      next( );
+    }
+    if ( k < 1 || k > getPosition( ) ) {
+      return null;
+    }
+    return getVisited( (int) k );
+  }
+
+  /*
+   * Returns the k'th smallest subset (1-based) out of those already visited
+   */
+  public SubsetNode getVisited( int k ) {
+    return store.visited( k );
+  }
+
+  /*
+   * The sum of the k'th smallest subset (1-based) out of those already visited
+   */
+  public long getVisitedSum( int k ) {
+    return store.visitedSum( k );
+  }
+
+  /*
+   * Whether every subset summing to at most the given sum has already been visited, in which
+   * case findSum answers for that sum without walking any further
+   */
+  public boolean covers( long sum ) {
+    if ( !hasNext( ) ) {
+      return true;
+    }
+    int position = getPosition( );
+    return position > 0 && sum <= store.visitedSum( position );
+  }
+
+  /*
+   * Returns the rank (1-based) of the first visited subset with the given sum. If there is none,
+   * returns -(r + 1) where r is the number of visited subsets whose sums are less than the sum.
+   */
+  public int rankOf( long sum ) {
+    int position = getPosition( );
+    int low = 0;
+    int high = position;
+    while ( low < high ) {
+      int mid = ( low + high ) >>> 1;
+      if ( store.visitedSum( mid + 1 ) < sum ) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    if ( low < position && store.visitedSum( low + 1 ) == sum ) {
+      return low + 1;
+    }
+    return -( low + 1 );
+  }
+
+  /*
+   * Returns a visited subset with the given sum, or null if none of the visited subsets has it
+   */
+  public SubsetNode findSum( long sum ) {
+    int rank = rankOf( sum );
+    return rank > 0 ? getVisited( rank ) : null;
+  }
+
+  /*
+   * Walks the heap in order of increasing sum until it visits a subset with the given sum, which
+   * is returned, or until the next subset would sum to more, in which case there is none and
+   * null is returned. Also returns null if the cursor is cancelled before it can tell. Throws
+   * IllegalArgumentException if the walk would have to visit more than MAX_RANK subsets.
+   */
+  public SubsetNode seekSum( long sum ) {
+    ++probes;
+    if ( covers( sum ) ) {
+      return findSum( sum );
+    }
+    while ( hasNext( ) && !cancelled && peekSum( ) <= sum ) {
+      if ( getPosition( ) >= MAX_RANK ) {
+        throw new IllegalArgumentException( "The sum " + sum + " is beyond the reach of a cursor" );
+      }
+      SubsetNode node = next( );
+      if ( node.sum == sum ) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  /*
+   * An estimate of the bytes held by the cursor, for bounding caches of cursors
+   */
+  public long memoryBytes( ) {
+    return 64 + store.memoryBytes( );
+  }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * The frontier of a virtual Subset Heap: a binary min-heap of node handles keyed by the sums of
+ * the nodes they refer to.
+ *
+ * The sums and the handles are held in parallel primitive arrays, so adding or removing a node
+ * compares cached sums only and allocates nothing beyond growing the arrays when they are full.
+ * What a handle refers to is up to the owner of the frontier.
+ */
+
+import java.util.Arrays;
+
+public class SubsetFrontier {
+
+  public long[] sums;
+  public int[] handles;
+  public int size;
+
+  public SubsetFrontier( ) {
+    this( 16 );
+  }
+
+  public SubsetFrontier( int capacity ) {
+    sums = new long[Math.max( capacity, 1 )];
+    handles = new int[sums.length];
+  }
+
+  public int size( ) {
+    return size;
+  }
+
+  public boolean isEmpty( ) {
+    return size == 0;
+  }
+
+  public void clear( ) {
+    size = 0;
+  }
+
+  /*
+   * The handle of the node with the smallest sum, or -1 if the frontier is empty
+   */
+  public int peek( ) {
+    return size == 0 ? -1 : handles[0];
+  }
+
+  public long peekSum( ) {
+    if ( size == 0 ) {
+      throw new java.util.NoSuchElementException( );
+    }
+    return sums[0];
+  }
+
+  public void add( long sum, int handle ) {
+    if ( size == sums.length ) {
+      sums = Arrays.copyOf( sums, size * 2 );
+      handles = Arrays.copyOf( handles, size * 2 );
+    }
+    // Sift the new entry up from the bottom of the heap
+    int i = size++;
+    while ( i > 0 ) {
+      int parent = ( i - 1 ) >>> 1;
+      if ( sums[parent] <= sum ) {
+        break;
+      }
+      sums[i] = sums[parent];
+      handles[i] = handles[parent];
+      i = parent;
+    }
+    sums[i] = sum;
+    handles[i] = handle;
+  }
+
+  /*
+   * Removes the node with the smallest sum and returns its handle, or -1 if the frontier is
+   * empty
+   */
+  public int poll( ) {
+    if ( size == 0 ) {
+      return -1;
+    }
+    int top = handles[0];
+    --size;
+    if ( size > 0 ) {
+      // Sift the last entry down from the top of the heap
+      long sum = sums[size];
+      int handle = handles[size];
+      int i = 0;
+      int half = size >>> 1;
+      while ( i < half ) {
+        int child = 2 * i + 1;
+        if ( child + 1 < size && sums[child + 1] < sums[child] ) {
+          ++child;
+        }
+        if ( sum <= sums[child] ) {
+          break;
+        }
+        sums[i] = sums[child];
+        handles[i] = handles[child];
+        i = child;
+      }
+      sums[i] = sum;
+      handles[i] = handle;
+    }
+    return top;
+  }
+
+}
@@ -0,0 +1,57 @@
+/**
+ * A node of a virtual Subset Heap.
+ *
+ * Rather than holding the elements of its subset, a node holds the positions of those elements
+ * in the sorted input set along with their sum, which is computed once when the node is
+ * generated. The elements themselves are looked up in the sorted input set only when they are
+ * asked for.
+ */
+
+public class SubsetNode implements Comparable<SubsetNode> {
+
+  public int[] indices;
+  public long sum;
+  public int limit;
+
+  public SubsetNode( int[] indices, long sum, int limit ) {
+    this.indices = indices;
+    this.sum = sum;
+    this.limit = limit;
+  }
+
+  public int[] getIndices( ) {
+    return this.indices;
+  }
+
+  public long getSum( ) {
+    return this.sum;
+  }
+
+  public int getLimit( ) {
+    return this.limit;
+  }
+
+  public int size( ) {
+    return indices.length;
+  }
+
+  /*
+   * Looks up the elements of this subset in the sorted input set from which it was generated
+   */
+  public long[] getData( long[] values ) {
+    long[] data = new long[indices.length];
+    for ( int i = 0; i < indices.length; ++i ) {
+      data[i] = values[indices[i]];
+    }
+    return data;
+  }
+
+  public int compareTo( SubsetNode node ) {
+    return Long.compare( sum, node.sum );
+  }
+
+  public String toString( ) {
+    return java.util.Arrays.toString( indices ) + "=" + sum;
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * A cache of the cursors of virtual Subset Heaps, one per input set and order n.
+ *
+ * Each cursor keeps the prefix of its heap that has been visited so far, so a cached cursor
+ * maps ranks to subsets in constant time and sums to ranks in logarithmic time for everything
+ * below the deepest rank asked of it, and resumes its walk for anything deeper. The cache holds
+ * cursors until their estimated size exceeds the memory budget, at which point the least
+ * recently used cursors are evicted.
+ *
+ * The cursors handed out by the cache are not thread-safe, so a cache must not be shared by
+ * searches that run at the same time.
+ */
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SubsetRankCache {
+
+  public long budget;
+  private LinkedHashMap<Key, SubsetCursor> cursors = new LinkedHashMap<Key, SubsetCursor>( 16, 0.75f, true );
+
+  public SubsetRankCache( long budget ) {
+    this.budget = budget;
+  }
+
+  /*
+   * Returns the cursor of the n-sized Subset Heap of the sorted values, creating it if it is not
+   * cached. Cursors that have been used since the last call are measured again, and the least
+   * recently used are evicted until the cache fits within its budget.
+   */
+  public SubsetCursor get( long[] values, int n ) {
+    return get( values, n, false, false );
+  }
+
+  /*
+   * As above, but when multiset is set the cursor visits each distinct multiset of values once,
+   * and when offHeap is set it keeps its nodes off the Java heap
+   */
+  public synchronized SubsetCursor get( long[] values, int n, boolean multiset, boolean offHeap ) {
+    Key key = new Key( values, n, multiset, offHeap );
+    SubsetCursor cursor = cursors.get( key );
+    if ( cursor == null ) {
+      key = new Key( values.clone( ), n, multiset, offHeap );
+      cursor = SubsetCursor.create( key.values, n, multiset, offHeap );
+      cursors.put( key, cursor );
+    }
+    trim( cursor );
+    return cursor;
+  }
+
+  /*
+   * Evicts the least recently used cursors until the cache fits within its budget
+   */
+  public synchronized void trim( ) {
+    trim( null );
+  }
+
+  private void trim( SubsetCursor keep ) {
+    long bytes = memoryBytes( );
+    Iterator<Map.Entry<Key, SubsetCursor>> it = cursors.entrySet( ).iterator( );
+    while ( bytes > budget && it.hasNext( ) ) {
+      SubsetCursor cursor = it.next( ).getValue( );
+      if ( cursor == keep ) {
+        continue;
+      }
+      bytes -= cursor.memoryBytes( );
+      it.remove( );
+    }
+  }
+
+  public synchronized long memoryBytes( ) {
+    long bytes = 0;
+    for ( SubsetCursor cursor : cursors.values( ) ) {
+      bytes += cursor.memoryBytes( );
+    }
+    return bytes;
+  }
+
+  public synchronized int size( ) {
+    return cursors.size( );
+  }
+
+  public synchronized void clear( ) {
+    cursors.clear( );
+  }
+
+  /*
+   * Identifies a heap by the contents of its input set, its order, whether it holds multisets and
+   * where its cursor keeps its nodes. The keys that are cached
+   * hold their own copy of the values, so that the cached cursor is unaffected by later changes
+   * to the caller's array.
+   */
+  private static class Key {
+
+    private long[] values;
+    private int n;
+    private boolean multiset;
+    private boolean offHeap;
+    private int hash;
+
+    public Key( long[] values, int n, boolean multiset, boolean offHeap ) {
+      this.values = values;
+      this.n = n;
+      this.multiset = multiset;
+      this.offHeap = offHeap;
+      this.hash = 31 * ( 31 * Arrays.hashCode( values ) + n ) + ( multiset ? 1 : 0 )
+                  + ( offHeap ? 2 : 0 );
+    }
+
+    public boolean equals( Object o ) {
+      if ( !( o instanceof Key ) ) {
+        return false;
+      }
+      Key key = (Key) o;
+      return hash == key.hash && n == key.n && multiset == key.multiset
+             && offHeap == key.offHeap && Arrays.equals( values, key.values );
+    }
+
+    public int hashCode( ) {
+      return hash;
+    }
+
+  }
+
+}
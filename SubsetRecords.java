@@ -0,0 +1,147 @@
+/**
+ * An array of fixed-width records of the nodes of a Subset Heap: a node's sum, its limit and its
+ * order indices, 12 + 4n bytes in all.
+ *
+ * The records are split across buffers of at most CHUNK_BYTES, which are either direct buffers,
+ * the last of which grows by doubling, or regions of a file mapped into memory, which are mapped
+ * whole as the records reach them and written back to the file by the operating system.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class SubsetRecords {
+
+  public static final int CHUNK_BYTES = 1 << 24;
+
+  public int order;
+  public int width;
+  private int perChunk;
+  private ByteBuffer[] chunks = new ByteBuffer[0];
+  private FileChannel file;
+
+  /*
+   * Records held in direct buffers
+   */
+  public SubsetRecords( int order ) {
+    this( order, null );
+  }
+
+  /*
+   * Records held in the given file, mapped into memory
+   */
+  public SubsetRecords( int order, FileChannel file ) {
+    this( order, file, Integer.MAX_VALUE );
+  }
+
+  /*
+   * Records held in the given file, of which there will be no more than capacity, so that no
+   * more of the file is mapped than they need
+   */
+  public SubsetRecords( int order, FileChannel file, int capacity ) {
+    this.order = order;
+    this.width = 12 + 4 * order;
+    this.perChunk = Math.max( 1, Math.min( CHUNK_BYTES / width, capacity ) );
+    this.file = file;
+  }
+
+  /*
+   * Makes room for every record up to the given one
+   */
+  public void ensure( int record ) {
+    int c = record / perChunk;
+    while ( chunks.length <= c ) {
+      int k = chunks.length;
+      chunks = Arrays.copyOf( chunks, k + 1 );
+      if ( file != null ) {
+        chunks[k] = map( k );
+      }
+      else {
+        chunks[k] = ByteBuffer.allocateDirect( k < c ? perChunk * width : 64 * width )
+                              .order( ByteOrder.nativeOrder( ) );
+      }
+    }
+    int needed = ( record % perChunk + 1 ) * width;
+    if ( chunks[c].capacity( ) < needed ) {
+      int capacity = chunks[c].capacity( );
+      while ( capacity < needed ) {
+        capacity = (int) Math.min( 2L * capacity, (long) perChunk * width );
+      }
+      ByteBuffer chunk = ByteBuffer.allocateDirect( capacity ).order( ByteOrder.nativeOrder( ) );
+      chunk.put( 0, chunks[c], 0, chunks[c].capacity( ) );
+      chunks[c] = chunk;
+    }
+  }
+
+  private ByteBuffer map( int c ) {
+    try {
+      long position = (long) c * perChunk * width;
+      return file.map( FileChannel.MapMode.READ_WRITE, position, (long) perChunk * width )
+                 .order( ByteOrder.nativeOrder( ) );
+    }
+    catch ( IOException e ) {
+      throw new UncheckedIOException( e );
+    }
+  }
+
+  public long sum( int record ) {
+    return chunks[record / perChunk].getLong( ( record % perChunk ) * width );
+  }
+
+  public int limit( int record ) {
+    return chunks[record / perChunk].getInt( ( record % perChunk ) * width + 8 );
+  }
+
+  public void set( int record, long sum, int limit ) {
+    ByteBuffer chunk = chunks[record / perChunk];
+    int offset = ( record % perChunk ) * width;
+    chunk.putLong( offset, sum );
+    chunk.putInt( offset + 8, limit );
+  }
+
+  public void put( int record, SubsetNode node ) {
+    ensure( record );
+    ByteBuffer chunk = chunks[record / perChunk];
+    int offset = ( record % perChunk ) * width;
+    chunk.putLong( offset, node.sum );
+    chunk.putInt( offset + 8, node.limit );
+    for ( int i = 0; i < order; ++i ) {
+      chunk.putInt( offset + 12 + 4 * i, node.indices[i] );
+    }
+  }
+
+  public SubsetNode get( int record ) {
+    ByteBuffer chunk = chunks[record / perChunk];
+    int offset = ( record % perChunk ) * width;
+    int[] indices = new int[order];
+    for ( int i = 0; i < order; ++i ) {
+      indices[i] = chunk.getInt( offset + 12 + 4 * i );
+    }
+    return new SubsetNode( indices, chunk.getLong( offset ), chunk.getInt( offset + 8 ) );
+  }
+
+  /*
+   * Writes the records held in a file back to it, up to the given count of records
+   */
+  public void force( int count ) {
+    for ( int c = 0; c < chunks.length && (long) c * perChunk < count; ++c ) {
+      if ( chunks[c] instanceof MappedByteBuffer ) {
+        ( (MappedByteBuffer) chunks[c] ).force( );
+      }
+    }
+  }
+
+  public long bytes( ) {
+    long bytes = 0;
+    for ( ByteBuffer chunk : chunks ) {
+      bytes += chunk.capacity( );
+    }
+    return bytes;
+  }
+
+}
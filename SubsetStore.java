@@ -0,0 +1,62 @@
+/**
+ * Where a SubsetCursor keeps the nodes of its heap: the frontier, ordered by sum, and the nodes
+ * it has visited, by rank.
+ *
+ * The cursor generates the nodes and decides which to visit, while the store only keeps them.
+ * HeapSubsetStore keeps them in arrays on the Java heap, and DirectSubsetStore in fixed-width
+ * records outside of it, for walks too deep for the Java heap to hold.
+ */
+
+public interface SubsetStore {
+
+  /*
+   * Adds a generated node to the frontier
+   */
+  void push( SubsetNode node );
+
+  /*
+   * Removes the node with the smallest sum from the frontier and returns it, or returns null if
+   * the frontier is empty
+   */
+  SubsetNode poll( );
+
+  /*
+   * The node with the smallest sum in the frontier, or null if the frontier is empty
+   */
+  SubsetNode peek( );
+
+  /*
+   * The smallest sum in the frontier, which must not be empty
+   */
+  long peekSum( );
+
+  int frontierSize( );
+
+  /*
+   * The i'th node of the frontier, in no particular order
+   */
+  SubsetNode frontierNode( int i );
+
+  /*
+   * Appends a node to the visited nodes, as the next in rank
+   */
+  void append( SubsetNode node );
+
+  int visitedCount( );
+
+  /*
+   * The visited node of the given rank (1-based)
+   */
+  SubsetNode visited( int rank );
+
+  /*
+   * The sum of the visited node of the given rank (1-based)
+   */
+  long visitedSum( int rank );
+
+  /*
+   * An estimate of the bytes held by the store, on the Java heap or off it
+   */
+  long memoryBytes( );
+
+}
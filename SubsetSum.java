@@ -27,19 +27,69 @@
  * @author Dan Shea
  */
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.PriorityQueue;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class SubsetSum {
   
   public ArrayList<Integer> input = new ArrayList<Integer>();
   public ArrayList<Integer> scaledInput = new ArrayList<Integer>();
-  public TreeNode<List<Integer>> tree;
+  public long[] scaledValues;
+  // The scaled values negated and reversed, so that they are sorted in non-decreasing order
+  public long[] mirroredValues;
+  // smallestSums[n] is the sum of the n smallest scaled values, and largestSums[n] that of the
+  // n largest
+  public long[] smallestSums;
+  public long[] largestSums;
+  // The number of subsets in each n-sized Subset Tree
+  public BinomialTable binomials;
+  public long offset = 0;
+  public SubsetNode tree;
+  // When set, the cursors of the n-sized Subset Trees are kept between searches
+  public SubsetRankCache cache;
+  public SearchMode mode = SearchMode.BINARY;
+  // When set, each n-sized Subset Tree is walked from whichever end is nearer the target
+  public boolean dualEnded = true;
+  // When set, the n-sized Subset Trees are searched in order of how near the target is to the
+  // end of their range they are walked from, rather than from n = 1 upwards
+  public boolean cheapestFirst = false;
+  // When set, subsets that only differ in which of several equal values they take are treated
+  // as one, so each distinct multiset of values is visited once
+  public boolean multiset = false;
+  // When set, the cursors keep the nodes of the Subset Trees off the Java heap
+  public boolean offHeap = false;
+  // When set, the cursors keep the nodes of the Subset Trees in files in this directory, one
+  // directory per tree, and resume the walks checkpointed there by earlier searches
+  public Path spillDirectory;
+  public int spillMemoryNodes = 1 << 20;
+  public long checkpointInterval = 1 << 22;
+  private HashMap<String, SubsetCursor> spilledCursors = new HashMap<String, SubsetCursor>( );
+  // Receives the probes made of the Subset Trees and the searches of each order n
+  public SearchListener listener = SearchListener.NONE;
+  // The number of distinct multisets of each size, derived when first needed
+  private long[] multisetCounts;
   
   public SubsetSum() {
+    this( false );
+  }
+  
+  /*
+   * When parallel is set, the n-sized Subset Trees are searched concurrently and the hit that
+   * comes first in planOrders is reported, which is the same subset the sequential search reports
+   */
+  public SubsetSum( boolean parallel ) {
     input.add( -7 );
     input.add( -3 );
     input.add( -2 );
@@ -51,66 +101,724 @@ public class SubsetSum {
     input.add( 21 );
     
     // The sum for which we want to find an appropriate subset
-    int target = 50;
+    long target = 50;
     
     // 1. Sort the set
     Collections.sort( input );
     
     // Scale the set so that there are no negative elements, with the offset
     // being stored in a variable
-    int offset = 0;
-    if ( input.get( 0 ) <= 0 ) {
-      offset = Math.abs( input.get( 0 ) ) + 1;
-      for ( int i = 0; i < input.size( ); ++i ) {
-        scaledInput.add( input.get( i ) + offset );
-      }
+    ScaledInput scaled = new ScaledInput( input );
+    offset = scaled.offset;
+    scaledValues = scaled.scaled;
+    for ( int i = 0; i < scaledValues.length; ++i ) {
+      scaledInput.add( (int) scaledValues[i] );
     }
+    prepare( );
     
     // Search all n-sized min-heaps from set S for the target sum
-    int scaledTarget;
-    boolean targetFound = false;
-    List<Integer> result = new ArrayList<Integer>( );
-    int resultSum = 0;
-    for ( int n = 1; n <= input.size( ); ++n ) {
-      // Scale the target to be searchable in the n-sized Subset Tree
-      scaledTarget = target + ( offset * n );
-      
-      // Now generate the k'th smallest subset
-      tree = buildTree( scaledInput, n );
-      result = binarySearch( tree, 0, choose( input.size( ), n ), scaledTarget );
-      if ( result == null ) {
-        continue;
-      }
-      if ( sum( result ) == scaledTarget ) {
-        targetFound = true;
-        break;
-      }
+    SubsetNode result;
+    if ( parallel ) {
+      result = parallelSearch( target, true, ForkJoinPool.commonPool( ) );
+    }
+    else {
+      result = search( target );
     }
+    boolean targetFound = result != null;
     
     // Output the result
     if ( targetFound ) {
-      for ( int i = 0; i < result.size( ); ++i ) {
-        result.set( i, result.get( i ) - offset );
+      long[] data = result.getData( scaledValues );
+      for ( int i = 0; i < data.length; ++i ) {
+        data[i] -= offset;
       }
       System.out.println( "Subset that sums to the target sum has been found!" );
-      printList( result );
+      printList( data );
     }
     else {
       System.out.println( "No subset sums to the target sum " + target );
     }
   }
   
-  public List<Integer> binarySearch( TreeNode<List<Integer>> tree, int lowerBound,
-                                    int upperBound, int target ) {
+  /*
+   * Prepares a search of the scaled input without running the example
+   */
+  public SubsetSum( ScaledInput input ) {
+    scaledValues = input.scaled;
+    offset = input.offset;
+    prepare( );
+  }
+  
+  /*
+   * A search of the same scaled input as the prepared search, with the same settings, which
+   * shares its binomial coefficients, mirrored values and sums rather than deriving them again.
+   * The shared tables are only ever read by a search, so any number of searches made from one
+   * prepared search may run at once, as long as none of them is prepared again. Cursors are not
+   * shared: the cache and the spill directory are left unset.
+   */
+  public SubsetSum( SubsetSum prepared ) {
+    scaledValues = prepared.scaledValues;
+    offset = prepared.offset;
+    mirroredValues = prepared.mirroredValues;
+    smallestSums = prepared.smallestSums;
+    largestSums = prepared.largestSums;
+    binomials = prepared.binomials;
+    multisetCounts = prepared.multisetCounts;
+    mode = prepared.mode;
+    dualEnded = prepared.dualEnded;
+    cheapestFirst = prepared.cheapestFirst;
+    multiset = prepared.multiset;
+    offHeap = prepared.offHeap;
+    listener = prepared.listener;
+  }
+  
+  /*
+   * Derives the binomial coefficients, the mirrored values and the sums of the smallest and
+   * largest values from the scaled values, which must be sorted. Must be called again whenever
+   * the scaled values change.
+   */
+  public void prepare( ) {
+    int size = scaledValues.length;
+    binomials = new BinomialTable( size );
+    mirroredValues = new long[size];
+    smallestSums = new long[size + 1];
+    largestSums = new long[size + 1];
+    for ( int i = 0; i < size; ++i ) {
+      mirroredValues[i] = -scaledValues[size - 1 - i];
+      smallestSums[i + 1] = smallestSums[i] + scaledValues[i];
+      largestSums[i + 1] = largestSums[i] + scaledValues[size - 1 - i];
+    }
+    multisetCounts = null;
+  }
+  
+  /*
+   * The number of subsets in the n-sized Subset Tree, counting each distinct multiset once when
+   * multiset is set, saturating at Long.MAX_VALUE
+   */
+  public long treeSize( int n ) {
+    if ( !multiset ) {
+      return binomials.choose( scaledValues.length, n );
+    }
+    if ( multisetCounts == null ) {
+      multisetCounts = MultisetCursor.countMultisets( scaledValues );
+    }
+    return multisetCounts[n];
+  }
+  
+  /*
+   * Searches the n-sized Subset Trees one after another, in the order given by planOrders, and
+   * returns the first subset found that sums to the target, or null if there is none
+   */
+  public SubsetNode search( long target ) {
+    for ( int n : planOrders( target ) ) {
+      SubsetNode result = searchOrder( n, target );
+      if ( result != null ) {
+        return result;
+      }
+    }
+    return null;
+  }
+  
+  /*
+   * Lists the orders n whose Subset Trees may hold a subset summing to the target, leaving out
+   * those whose range of sums does not include it. The orders are listed from n = 1 upwards, or
+   * when cheapestFirst is set, by how far the target is from the end of the range the tree is
+   * walked from, which is roughly how much of the tree must be walked to reach it.
+   */
+  public int[] planOrders( long target ) {
+    return planOrders( target, cheapestFirst );
+  }
+  
+  public int[] planOrders( long target, boolean cheapestFirst ) {
+    int size = scaledValues.length;
+    Integer[] orders = new Integer[size];
+    long[] distances = new long[size + 1];
+    int count = 0;
+    for ( int n = 1; n <= size; ++n ) {
+      long scaledTarget = scaleTarget( target, n );
+      if ( !feasible( n, scaledTarget ) ) {
+        continue;
+      }
+      if ( chooseEnd( n, scaledTarget ) == HeapEnd.MIN ) {
+        distances[n] = scaledTarget - smallestSums[n];
+      }
+      else {
+        distances[n] = largestSums[n] - scaledTarget;
+      }
+      orders[count++] = n;
+    }
+    if ( cheapestFirst ) {
+      Arrays.sort( orders, 0, count, ( a, b ) -> Long.compare( distances[a], distances[b] ) );
+    }
+    int[] plan = new int[count];
+    for ( int i = 0; i < count; ++i ) {
+      plan[i] = orders[i];
+    }
+    return plan;
+  }
+  
+  /*
+   * Whether the scaled target lies between the sums of the n smallest and the n largest values,
+   * outside of which no n-sized subset can sum to it
+   */
+  public boolean feasible( int n, long scaledTarget ) {
+    return scaledTarget >= smallestSums[n] && scaledTarget <= largestSums[n];
+  }
+  
+  /*
+   * Searches for the subset whose sum is nearest the target, which is one that sums to it if
+   * there is any. Stops early, returning the nearest subset found so far, when the budget runs
+   * out.
+   *
+   * The n smallest and the n largest values are the nearest n-sized subsets to a target outside
+   * the range of the n-sized sums, and are a first answer for the orders whose range holds it.
+   * Those orders are then walked cheapest first, each from the end of its Subset Tree nearer the
+   * target, up to the target: the last subset visited and the next one in the frontier are the
+   * nearest below and above it. Either is a subset even when the budget cuts the walk short, so
+   * every subset visited can only improve the answer.
+   */
+  public SubsetNode searchClosest( long target, SearchBudget budget ) {
+    int size = scaledValues.length;
+    SubsetNode best = null;
+    long bestDistance = Long.MAX_VALUE;
+    for ( int n = 1; n <= size; ++n ) {
+      long scaledTarget = scaleTarget( target, n );
+      long distance = distance( smallestSums[n], scaledTarget );
+      if ( best == null || distance < bestDistance ) {
+        best = buildTree( scaledValues, n );
+        bestDistance = distance;
+      }
+      distance = distance( largestSums[n], scaledTarget );
+      if ( distance < bestDistance ) {
+        best = translate( buildTree( mirroredValues, n ), n, HeapEnd.MAX );
+        bestDistance = distance;
+      }
+    }
+    for ( int n : planOrders( target, true ) ) {
+      if ( bestDistance == 0 || budget.isExhausted( ) ) {
+        break;
+      }
+      long scaledTarget = scaleTarget( target, n );
+      HeapEnd end = chooseEnd( n, scaledTarget );
+      SubsetCursor cursor = cursor( n, end );
+      long sum = heapTarget( n, end, scaledTarget );
+      while ( cursor.hasNext( ) && cursor.peekSum( ) <= sum && budget.spend( ) ) {
+        cursor.next( );
+      }
+      // The subsets visited that sum to at most the target, of which the last is nearest it
+      int rank = cursor.rankOf( sum + 1 );
+      int below = rank > 0 ? rank - 1 : -rank - 1;
+      SubsetNode[] neighbours = { below > 0 ? cursor.getVisited( below ) : null,
+                                  below < cursor.getPosition( ) ? cursor.getVisited( below + 1 )
+                                                                : cursor.peek( ) };
+      for ( SubsetNode node : neighbours ) {
+        if ( node != null && distance( node.sum, sum ) < bestDistance ) {
+          best = translate( node, n, end );
+          bestDistance = distance( node.sum, sum );
+        }
+      }
+    }
+    return best;
+  }
+  
+  /*
+   * The distance between two sums, saturating at Long.MAX_VALUE
+   */
+  private static long distance( long a, long b ) {
+    long distance = a > b ? a - b : b - a;
+    return distance < 0 ? Long.MAX_VALUE : distance;
+  }
+  
+  /*
+   * The number of n-sized subsets that sum to less than the sum. Counts beyond Long.MAX_VALUE
+   * saturate at it.
+   *
+   * The ranges of the sums rule out some counts without walking. Otherwise the subsets are
+   * counted by SubsetCounter from whichever end of the tree is nearer the sum, without keeping
+   * them: from the top, the count is the size of the tree less the subsets summing to at least
+   * the sum.
+   */
+  public long countBelow( int n, long sum ) {
+    long scaledSum = scaleTarget( sum, n );
+    long size = treeSize( n );
+    if ( scaledSum <= smallestSums[n] ) {
+      return 0;
+    }
+    if ( scaledSum > largestSums[n] ) {
+      return size;
+    }
+    if ( size < Long.MAX_VALUE && chooseEnd( n, scaledSum ) != HeapEnd.MIN ) {
+      return size - SubsetCounter.countBelow( cursor( mirroredValues, n ), 1 - scaledSum );
+    }
+    return SubsetCounter.countBelow( cursor( scaledValues, n ), scaledSum );
+  }
+  
+  /*
+   * The number of n-sized subsets that sum to at most the sum
+   */
+  public long countAtMost( int n, long sum ) {
+    return sum == Long.MAX_VALUE ? treeSize( n ) : countBelow( n, sum + 1 );
+  }
+  
+  /*
+   * The number of n-sized subsets whose sums lie between low and high, inclusive
+   */
+  public long countBetween( int n, long low, long high ) {
+    if ( low > high ) {
+      return 0;
+    }
+    return countAtMost( n, high ) - countBelow( n, low );
+  }
+  
+  /*
+   * The number of non-empty subsets of any size whose sums lie between low and high, inclusive
+   */
+  public long countBetween( long low, long high ) {
+    long count = 0;
+    for ( int n = 1; n <= scaledValues.length; ++n ) {
+      count = BinomialTable.saturatedAdd( count, countBetween( n, low, high ) );
+    }
+    return count;
+  }
+  
+  /*
+   * The rank (1-based) of the first n-sized subset in order of increasing sum that has the
+   * given sum. If no n-sized subset has it, returns -(r + 1) where r is the number of n-sized
+   * subsets that sum to less.
+   */
+  public long rankOf( int n, long sum ) {
+    long below = countBelow( n, sum );
+    return countAtMost( n, sum ) > below ? below + 1 : -below - 1;
+  }
+  
+  /*
+   * The sums of the k'th smallest n-sized subset (1-based) and of those after it, up to count
+   * of them, or fewer if the tree runs out first. Throws IllegalArgumentException if k + count - 1
+   * is beyond SubsetCursor.MAX_RANK, the deepest rank a cursor can walk to.
+   */
+  public long[] sumsFrom( int n, long k, int count ) {
+    if ( k < 1 || count < 0 ) {
+      throw new IllegalArgumentException( "Rank " + k + " and count " + count + " are not valid" );
+    }
+    if ( k + count - 1 > SubsetCursor.MAX_RANK ) {
+      throw new IllegalArgumentException( "Rank " + ( k + count - 1 )
+                                          + " is beyond the reach of a cursor" );
+    }
+    SubsetCursor cursor = cursor( scaledValues, n );
+    cursor.findKthMin( k + count - 1 );
+    int to = (int) Math.min( k - 1 + count, cursor.getPosition( ) );
+    int from = (int) Math.min( k - 1, to );
+    long[] sums = new long[to - from];
+    for ( int i = from; i < to; ++i ) {
+      sums[i - from] = cursor.getVisitedSum( i + 1 ) - offset * n;
+    }
+    return sums;
+  }
+  
+  /*
+   * Iterates lazily over every subset that sums to the target, in increasing order of size
+   */
+  public Iterator<SubsetNode> solutions( long target ) {
+    return new SolutionIterator( this, target, 1, scaledValues.length );
+  }
+  
+  /*
+   * Iterates lazily over every n-sized subset that sums to the target
+   */
+  public Iterator<SubsetNode> solutions( long target, int n ) {
+    return new SolutionIterator( this, target, n, n );
+  }
+  
+  /*
+   * Streams every subset that sums to the target, in increasing order of size. The stream is
+   * sequential and pulls each subset from the search only when it is consumed. Closing the
+   * stream cancels the walk of the cursor it holds.
+   */
+  public Stream<SubsetNode> solutionStream( long target ) {
+    SolutionIterator solutions = new SolutionIterator( this, target, 1, scaledValues.length );
+    int characteristics = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL;
+    return StreamSupport.stream( Spliterators.spliteratorUnknownSize( solutions,
+                                                                      characteristics ), false )
+                        .onClose( solutions::close );
+  }
+  
+  /*
+   * Searches for a subset summing to each of the targets, which must be sorted in non-decreasing
+   * order, and returns one for each target in the same order, or null where there is none. Each
+   * n-sized Subset Tree is walked once for all of the targets still unresolved, which are
+   * resolved as the walk passes their sums: upwards in increasing order for the targets nearer
+   * the bottom of the tree's range, and downwards in decreasing order for the rest. As in search,
+   * the subset found for a target is one of the smallest size.
+   */
+  public SubsetNode[] searchAll( long[] targets ) {
+    for ( int i = 1; i < targets.length; ++i ) {
+      if ( targets[i] < targets[i - 1] ) {
+        throw new IllegalArgumentException( "The targets must be sorted" );
+      }
+    }
+    SubsetNode[] results = new SubsetNode[targets.length];
+    int unresolved = targets.length;
+    for ( int n = 1; n <= scaledValues.length && unresolved > 0; ++n ) {
+      SubsetCursor cursor = null;
+      for ( int i = 0; i < targets.length; ++i ) {
+        long scaledTarget = scaleTarget( targets[i], n );
+        if ( results[i] != null || !feasible( n, scaledTarget )
+             || chooseEnd( n, scaledTarget ) != HeapEnd.MIN ) {
+          continue;
+        }
+        if ( cursor == null ) {
+          cursor = cursor( n, HeapEnd.MIN );
+        }
+        results[i] = seekSum( cursor, scaledTarget );
+        if ( results[i] != null ) {
+          --unresolved;
+        }
+      }
+      cursor = null;
+      for ( int i = targets.length - 1; i >= 0; --i ) {
+        long scaledTarget = scaleTarget( targets[i], n );
+        if ( results[i] != null || !feasible( n, scaledTarget ) ) {
+          continue;
+        }
+        HeapEnd end = chooseEnd( n, scaledTarget );
+        if ( end == HeapEnd.MIN ) {
+          continue;
+        }
+        if ( cursor == null ) {
+          cursor = cursor( n, end );
+        }
+        results[i] = translate( seekSum( cursor, heapTarget( n, end, scaledTarget ) ), n, end );
+        if ( results[i] != null ) {
+          --unresolved;
+        }
+      }
+    }
+    return results;
+  }
+  
+  /*
+   * Searches the n-sized Subset Trees concurrently on the given pool, one task per n that
+   * planOrders does not rule out, started in the order it gives. As soon as a task finds a
+   * subset, the tasks that can no longer affect the result are cancelled: all other tasks in
+   * first-hit mode, or only the tasks of the orders planned after it in deterministic mode, where
+   * the subset of the order planned first is returned. That is the subset search returns, with or
+   * without cheapestFirst.
+   */
+  public SubsetNode parallelSearch( long target, boolean deterministic, ForkJoinPool pool ) {
+    int[] orders = planOrders( target );
+    AtomicInteger hitPosition = new AtomicInteger( orders.length );
+    AtomicReferenceArray<SubsetCursor> cursors =
+        new AtomicReferenceArray<SubsetCursor>( orders.length );
+    AtomicReferenceArray<SubsetNode> hits = new AtomicReferenceArray<SubsetNode>( orders.length );
+    OrderSearch[] tasks = new OrderSearch[orders.length];
+    for ( int i = 0; i < orders.length; ++i ) {
+      tasks[i] = new OrderSearch( i, orders[i], target, deterministic, hitPosition, cursors, hits );
+    }
+    pool.invoke( new RecursiveAction( ) {
+      protected void compute( ) {
+        invokeAll( tasks );
+      }
+    } );
+    int position = hitPosition.get( );
+    return position < orders.length ? hits.get( position ) : null;
+  }
+  
+  /*
+   * Chooses the Subset Tree that the task of a parallel search walks for the n-sized subsets.
+   * The complement heap of n is the min-heap of order N - n, which another task may be walking,
+   * and when cursors are shared the two tasks would be handed the same cursor, so that a hit in
+   * one could cancel the other's walk. The max-heap, which reaches the subset after the same
+   * number of nodes, is walked instead.
+   */
+  public HeapEnd chooseParallelEnd( int n, long scaledTarget ) {
+    HeapEnd end = chooseEnd( n, scaledTarget );
+    if ( end == HeapEnd.COMPLEMENT && sharesCursors( ) ) {
+      return HeapEnd.MAX;
+    }
+    return end;
+  }
+  
+  /*
+   * Whether each Subset Tree has one cursor, kept by the cache or in the spill directory, that
+   * every search of the tree is handed, rather than a cursor of its own
+   */
+  public boolean sharesCursors( ) {
+    return cache != null || spillDirectory != null;
+  }
+  
+  /*
+   * The search of a single n-sized Subset Tree within parallelSearch, at the given position in
+   * the plan. The cursors and hits are indexed by position in the plan.
+   */
+  @SuppressWarnings( "serial" )
+  private class OrderSearch extends RecursiveAction {
+    
+    private int position;
+    private int n;
+    private long target;
+    private boolean deterministic;
+    private AtomicInteger hitPosition;
+    private AtomicReferenceArray<SubsetCursor> cursors;
+    private AtomicReferenceArray<SubsetNode> hits;
+    
+    public OrderSearch( int position, int n, long target, boolean deterministic,
+                        AtomicInteger hitPosition, AtomicReferenceArray<SubsetCursor> cursors,
+                        AtomicReferenceArray<SubsetNode> hits ) {
+      this.position = position;
+      this.n = n;
+      this.target = target;
+      this.deterministic = deterministic;
+      this.hitPosition = hitPosition;
+      this.cursors = cursors;
+      this.hits = hits;
+    }
+    
+    private boolean cancelled( int position, int hit ) {
+      return deterministic ? hit < position : hit != position && hit < cursors.length( );
+    }
+    
+    protected void compute( ) {
+      long scaledTarget = scaleTarget( target, n );
+      HeapEnd end = chooseParallelEnd( n, scaledTarget );
+      SubsetCursor cursor = cursor( n, end );
+      // Publish the cursor before checking for an earlier hit, so that a hit either sees the
+      // cursor and cancels it or happened before the check below
+      cursors.set( position, cursor );
+      if ( cancelled( position, hitPosition.get( ) ) ) {
+        return;
+      }
+      SubsetNode result = searchEnd( cursor, n, end, scaledTarget );
+      if ( result == null ) {
+        return;
+      }
+      hits.set( position, result );
+      int hit = hitPosition.accumulateAndGet( position, Math::min );
+      for ( int m = 0; m < cursors.length( ); ++m ) {
+        SubsetCursor other = cursors.get( m );
+        if ( other != null && cancelled( m, hit ) ) {
+          other.cancel( );
+        }
+      }
+    }
+    
+  }
+  
+  /*
+   * Searches the n-sized subsets for the target, scaled to be searchable among them, in the
+   * Subset Tree chosen by chooseEnd. Returns null if no subset sums to the target.
+   */
+  public SubsetNode searchOrder( int n, long target ) {
+    long scaledTarget = scaleTarget( target, n );
+    if ( !feasible( n, scaledTarget ) ) {
+      return null;
+    }
+    HeapEnd end = chooseEnd( n, scaledTarget );
+    SubsetCursor cursor = cursor( n, end );
+    tree = cursor.root;
+    return searchEnd( cursor, n, end, scaledTarget );
+  }
+  
+  /*
+   * Searches the Subset Tree chosen for the n-sized subsets for the scaled target, and maps the
+   * subset found back to the scaled values, reporting the search to the listener
+   */
+  private SubsetNode searchEnd( SubsetCursor cursor, int n, HeapEnd end, long scaledTarget ) {
+    if ( listener == SearchListener.NONE ) {
+      return translate( searchHeap( cursor, heapTarget( n, end, scaledTarget ) ), n, end );
+    }
+    long start = System.nanoTime( );
+    long probes = cursor.probes;
+    long popped = cursor.popped;
+    SubsetNode result = translate( searchHeap( cursor, heapTarget( n, end, scaledTarget ) ), n, end );
+    listener.orderSearched( n, end, cursor.probes - probes, cursor.popped - popped,
+                            System.nanoTime( ) - start, result != null );
+    return result;
+  }
+  
+  /*
+   * The target scaled to be searchable among the n-sized subsets. A scaled target that does not
+   * fit in a long is saturated, which no subset can sum to as the input was checked for sums that
+   * do not fit when it was scaled.
+   */
+  public long scaleTarget( long target, int n ) {
+    long shift = offset * n;
+    if ( n != 0 && shift / n != offset ) {
+      return Long.MAX_VALUE;
+    }
+    return BinomialTable.saturatedAdd( target, shift );
+  }
+  
+  /*
+   * Chooses the Subset Tree to walk for the n-sized subsets summing to the scaled target. The
+   * max-heap and the complement heap reach a subset after the same number of nodes, so they are
+   * chosen when the target is nearer the sum of the n largest values than that of the n
+   * smallest, with the complement heap preferred when its subsets are the smaller ones.
+   */
+  public HeapEnd chooseEnd( int n, long scaledTarget ) {
+    int size = scaledValues.length;
+    if ( !dualEnded ) {
+      return HeapEnd.MIN;
+    }
+    long low = smallestSums[n];
+    long high = largestSums[n];
+    if ( scaledTarget - low <= high - scaledTarget ) {
+      return HeapEnd.MIN;
+    }
+    if ( size - n > 0 && size - n < n ) {
+      return HeapEnd.COMPLEMENT;
+    }
+    return HeapEnd.MAX;
+  }
+  
+  public SubsetCursor cursor( int n, HeapEnd end ) {
+    switch ( end ) {
+      case MAX:
+        return cursor( mirroredValues, n );
+      case COMPLEMENT:
+        return cursor( scaledValues, scaledValues.length - n );
+      default:
+        return cursor( scaledValues, n );
+    }
+  }
+  
+  /*
+   * The sum to search for in the chosen Subset Tree in place of the scaled target
+   */
+  public long heapTarget( int n, HeapEnd end, long scaledTarget ) {
+    switch ( end ) {
+      case MAX:
+        return -scaledTarget;
+      case COMPLEMENT:
+        return smallestSums[scaledValues.length] - scaledTarget;
+      default:
+        return scaledTarget;
+    }
+  }
+  
+  /*
+   * Maps a subset found in the chosen Subset Tree back to the n-sized subset of the scaled
+   * values that it stands for
+   */
+  public SubsetNode translate( SubsetNode node, int n, HeapEnd end ) {
+    if ( node == null || end == HeapEnd.MIN ) {
+      return node;
+    }
+    int size = scaledValues.length;
+    int[] indices = new int[n];
+    if ( end == HeapEnd.MAX ) {
+      for ( int i = 0; i < n; ++i ) {
+        indices[i] = size - 1 - node.indices[n - 1 - i];
+      }
+      return new SubsetNode( indices, -node.sum, 0 );
+    }
+    int j = 0;
+    int k = 0;
+    for ( int i = 0; i < size; ++i ) {
+      if ( k < node.indices.length && node.indices[k] == i ) {
+        ++k;
+      }
+      else {
+        indices[j++] = i;
+      }
+    }
+    return new SubsetNode( indices, smallestSums[size] - node.sum, 0 );
+  }
+  
+  /*
+   * Returns the cursor of the n-sized Subset Tree of the values, from the cache if there is one.
+   * A cached cursor may have been cancelled by an earlier parallel search, so it is allowed to
+   * walk again.
+   */
+  public SubsetCursor cursor( long[] values, int n ) {
+    if ( spillDirectory != null ) {
+      SubsetCursor cursor = spilledCursor( values, n );
+      cursor.resume( );
+      return cursor;
+    }
+    if ( cache != null ) {
+      SubsetCursor cursor = cache.get( values, n, multiset, offHeap );
+      cursor.resume( );
+      return cursor;
+    }
+    return SubsetCursor.create( values, n, multiset, offHeap );
+  }
+  
+  /*
+   * Returns the cursor of the n-sized Subset Tree of the values whose nodes are kept in the spill
+   * directory, opening it on first use
+   */
+  private synchronized SubsetCursor spilledCursor( long[] values, int n ) {
+    String name = ( values == mirroredValues ? "max-" : "min-" ) + n;
+    SubsetCursor cursor = spilledCursors.get( name );
+    if ( cursor == null ) {
+      SubsetStore store = new SpillingSubsetStore( spillDirectory.resolve( name ), values, n,
+                                                   multiset, spillMemoryNodes,
+                                                   checkpointInterval );
+      if ( multiset ) {
+        cursor = new MultisetCursor( values, n, store );
+      }
+      else {
+        cursor = new SubsetCursor( values, buildTree( values, n ), store );
+      }
+      spilledCursors.put( name, cursor );
+    }
+    return cursor;
+  }
+  
+  /*
+   * Checkpoints the walks of every Subset Tree kept in the spill directory, so that a later
+   * search resumes them where they stand now
+   */
+  public synchronized void checkpoint( ) {
+    for ( SubsetCursor cursor : spilledCursors.values( ) ) {
+      ( (SpillingSubsetStore) cursor.store ).checkpoint( );
+    }
+  }
+  
+  /*
+   * Searches the Subset Tree walked by the cursor for a subset with the given sum. Returns null
+   * if no subset has it or the cursor has been cancelled.
+   *
+   * The binary and interpolation searches probe ranks anywhere in the tree, but a cursor cannot
+   * walk beyond SubsetCursor.MAX_RANK, so a tree with more subsets than that is searched with
+   * the threshold walk instead, whichever the mode, which only walks as deep as the target lies.
+   * A target that lies beyond MAX_RANK even from the nearer end of its range is out of reach of
+   * every mode, and the walk throws an IllegalArgumentException when it gets there.
+   */
+  public SubsetNode searchHeap( SubsetCursor cursor, long target ) {
+    // A target within the part of the tree that has already been walked is looked up directly
+    if ( cursor.covers( target ) ) {
+      return cursor.findSum( target );
+    }
+    long upperBound = treeSize( cursor.order );
+    if ( mode == SearchMode.THRESHOLD || upperBound > SubsetCursor.MAX_RANK ) {
+      return seekSum( cursor, target );
+    }
+    if ( mode == SearchMode.INTERPOLATION ) {
+      return interpolationSearch( cursor, upperBound, target );
+    }
+    SubsetNode result = binarySearch( cursor, 0, upperBound, target );
+    if ( result == null || result.getSum( ) != target ) {
+      return null;
+    }
+    return result;
+  }
+  
+  public SubsetNode binarySearch( SubsetCursor cursor, long lowerBound,
+                                  long upperBound, long target ) {
     if ( lowerBound > upperBound ) {
       return null;
     }
-    int position = Math.round( ( lowerBound + upperBound ) / 2.0f );
+    // The midpoint, rounded up, without overflowing
+    long position = lowerBound + ( upperBound - lowerBound + 1 ) / 2;
     if ( position == 0 ) {
       return null;
     }
-    List<Integer> kthMin = findKthMin( tree, position );
-    int sum = sum( kthMin );
+    SubsetNode kthMin = findKthMin( cursor, position );
+    if ( kthMin == null ) {
+      return null;
+    }
+    long sum = kthMin.getSum( );
     if ( lowerBound == upperBound ) {
       if ( sum == target ) {
         return kthMin;
@@ -127,164 +835,167 @@ public class SubsetSum {
         if ( lowerBound == position ) {
           position += 1;
         }
-        return binarySearch( tree, position, upperBound, target );
+        return binarySearch( cursor, position, upperBound, target );
       }
       else {
         if ( upperBound == position ) {
           position -= 1;
         }
-        return binarySearch( tree, lowerBound, position, target );
+        return binarySearch( cursor, lowerBound, position, target );
       }
     }
   }
   
-  public TreeNode<List<Integer>> buildTree( ArrayList<Integer> list, int n ) {
-    TreeNode<List<Integer>> tree = new TreeNode<List<Integer>>();
-    
-    ArrayList<Integer> idcs = new ArrayList<Integer>();
-    for ( int i = 0; i < n; ++i ) {
-      idcs.add( i );
-    }
-    
-    // 2. Set the root node to the n smallest elements of S
-    tree.setData( list.subList( 0, n ) );
-    tree.setIndices( idcs );
-    tree.setLimit( 0 );
-    
-    return tree;
-  }
-  
   /*
-   * In this case, the algorithm terminates after the first layer of chilren are created;
-   * the recursive case is not run
+   * Searches the ranks 1 to upperBound of the tree walked by the cursor by interpolation, for a
+   * tree whose visited subsets all sum to less than the target. The sums of the n-sized subsets
+   * are modelled as normally distributed, with the mean and variance of n values drawn without
+   * replacement from the values of the tree, and each probe is placed where the model puts the
+   * target between the two ranks that bracket it. Only the order of the model's estimates
+   * matters for correctness: a probe that fails to halve the bracket is followed by one twice as
+   * far from the end of the bracket that it moved, up to the midpoint, so a poor fit costs at
+   * most a bisection. Returns null if no subset has the target sum or the cursor has been
+   * cancelled.
    */
-  public List<TreeNode<List<Integer>>> buildChildren( List<Integer> list, List<Integer> indices, int limit ) {
-    ArrayList<TreeNode<List<Integer>>> children = new ArrayList<TreeNode<List<Integer>>>();
-    
-    // 3. The first child is the subset of the parent node with the greatest element replaced by
-    //    the next greatest element in S. If no such greater element exists, then you have reached
-    //    the end of S and this child node should not be generated.
-    // 4. Let the variable i be equal to the second greatest index in the subset of the parent
-    //    node. The next child is the subset of the parent node with the element at index i
-    //    replaced by the next greatest element in S. If that element already exists in the subset,
-    //    then increment the conflicting element with its next greatest element in S. Repeat with
-    //    any additional conflicts until none exist or there is no greater element in S with which
-    //    to increment. If the latter is the case, then you have reached the end of S and this
-    //    child node should not be generated.
-    // 5. Decerement i by 1 and repeat Step 4 for all subsequent children until i is less than the
-    //    smallest index at which the parent incremented its subset value.
-    for ( int i = list.size( ) - 1; i >= limit; --i ) {
-      // 6. The algorithm terminates when no additional incrementations can be made (i.e. when the
-      //    greatest element in the subset is equal to the greatest element in S).
-      if ( indices.get( indices.size( ) - 1 ) == input.size( ) - 1 ) {
-        continue;
-      }
-      TreeNode<List<Integer>> child = new TreeNode<List<Integer>>();
-      ArrayList<ArrayList<Integer>> tmpArr = incrementList( list, indices, i );
-      child.setData( tmpArr.get( 0 ) );
-      child.setIndices( tmpArr.get( 1 ) );
-      child.setLimit( i );
-      children.add( child );
+  public SubsetNode interpolationSearch( SubsetCursor cursor, long upperBound, long target ) {
+    long[] values = cursor.values;
+    int size = values.length;
+    int n = cursor.order;
+    double mean = 0;
+    for ( int i = 0; i < size; ++i ) {
+      mean += values[i];
     }
-    
-    return children;
-  }
-  
-  public ArrayList<ArrayList<Integer>> incrementList( List<Integer> list, List<Integer> indices, int idx ) {
-    if ( list.size( ) < 1 ) {
-      return null;
+    mean /= size;
+    double variance = 0;
+    for ( int i = 0; i < size; ++i ) {
+      variance += ( values[i] - mean ) * ( values[i] - mean );
     }
-    ArrayList<Integer> newList = deepCopy( list );
-    ArrayList<Integer> newIndices = deepCopy( indices );
-    if ( list.size( ) == 1 ) {
-      if ( idx < list.size( ) ) {
-        newList.set( idx, scaledInput.get( indices.get( idx ) + 1 ) );
-        newIndices.set( idx, indices.get( idx ) + 1 );
+    variance /= size;
+    double sumMean = n * mean;
+    double sumDeviation = size > 1 ? Math.sqrt( n * variance * ( size - n ) / ( size - 1 ) ) : 0;
+    
+    // The subset at rank lower sums to less than the target and the one at rank upper to more,
+    // with upperBound + 1 standing for a rank beyond the tree. The visited subsets are all below
+    // the target, so the bracket starts above them.
+    long lower = cursor.getPosition( );
+    long upper = upperBound == Long.MAX_VALUE ? upperBound : upperBound + 1;
+    double lowerFraction = lower == 0 ? 0 : sumFraction( cursor.getVisitedSum( (int) lower ),
+                                                         sumMean, sumDeviation );
+    double upperFraction = 1;
+    double targetFraction = sumFraction( target, sumMean, sumDeviation );
+    long step = 0;
+    boolean raised = false;
+    boolean halved = true;
+    while ( upper - lower > 1 ) {
+      long half = ( upper - lower ) / 2;
+      long position;
+      if ( !halved ) {
+        long distance = Math.min( half, Math.max( 2 * step, 1 ) );
+        position = raised ? lower + distance : upper - distance;
       }
       else {
-        return null;
+        double fraction = ( targetFraction - lowerFraction ) / ( upperFraction - lowerFraction );
+        if ( !( fraction >= 0 && fraction <= 1 ) ) {
+          fraction = 0.5;
+        }
+        position = lower + (long) ( fraction * ( upper - lower ) );
+        position = Math.max( lower + 1, Math.min( upper - 1, position ) );
       }
-    }
-    else {
-      do {
-        newList.set( idx, scaledInput.get( indices.get( idx ) + 1 ) );
-        newIndices.set( idx, indices.get( idx ) + 1 );
-        ++idx;
-      } while ( idx < list.size( ) && newIndices.get( idx - 1 ) == indices.get( idx ) );
-      if ( newIndices.get( newIndices.size( ) - 1 ) == newIndices.get( newIndices.size( ) - 2 ) ) {
+      SubsetNode kthMin = findKthMin( cursor, position );
+      if ( kthMin == null ) {
         return null;
       }
+      long sum = kthMin.getSum( );
+      if ( sum == target ) {
+        return kthMin;
+      }
+      raised = sum < target;
+      if ( raised ) {
+        step = position - lower;
+        lower = position;
+        lowerFraction = sumFraction( sum, sumMean, sumDeviation );
+      }
+      else {
+        step = upper - position;
+        upper = position;
+        upperFraction = sumFraction( sum, sumMean, sumDeviation );
+      }
+      halved = step >= half;
     }
-    ArrayList<ArrayList<Integer>> retVal = new ArrayList<ArrayList<Integer>>();
-    retVal.add( newList );
-    retVal.add( newIndices );
-    return retVal;
+    return null;
   }
   
-  public ArrayList<Integer> deepCopy( List<Integer> list ) {
-    ArrayList<Integer> newList = new ArrayList<Integer>();
-    for ( int i = 0; i < list.size(); ++i ) {
-      newList.add( list.get( i ) );
+  /*
+   * The fraction of the n-sized subsets that the model expects to sum to less than the sum
+   */
+  private static double sumFraction( long sum, double mean, double deviation ) {
+    if ( deviation == 0 ) {
+      return sum < mean ? 0 : sum > mean ? 1 : 0.5;
     }
-    return newList;
+    double z = ( sum - mean ) / ( deviation * Math.sqrt( 2 ) );
+    // The complementary error function, to within 1.2e-7 (Numerical Recipes, erfcc)
+    double t = 1 / ( 1 + 0.5 * Math.abs( z ) );
+    double erfc = t * Math.exp( -z * z - 1.26551223 + t * ( 1.00002368 + t * ( 0.37409196
+                  + t * ( 0.09678418 + t * ( -0.18628806 + t * ( 0.27886807 + t * ( -1.13520398
+                  + t * ( 1.48851587 + t * ( -0.82215223 + t * 0.17087277 ) ) ) ) ) ) ) ) );
+    return z >= 0 ? 1 - erfc / 2 : erfc / 2;
   }
   
-  @SuppressWarnings("unchecked")
-  public List<Integer> findKthMin( TreeNode<List<Integer>> tree, int k ) {
-    Comparator<TreeNode<List<Integer>>> comparator = new NodeComparator();
-    PriorityQueue<TreeNode<List<Integer>>> toVisit = new PriorityQueue<TreeNode<List<Integer>>>( 11, comparator );
-    TreeNode<List<Integer>> root = new TreeNode<List<Integer>>( tree.getData( ) );
-    root.setIndices( tree.getIndices( ) );
-    root.setLimit( tree.getLimit( ) );
-    root.setChildren( tree.getChildren( ) );
-    toVisit.add( root );
-    ArrayList<TreeNode<List<Integer>>> smallestNodes = new ArrayList<TreeNode<List<Integer>>>( );
-    while ( smallestNodes.size( ) < k ) {
-      TreeNode<List<Integer>> node = toVisit.poll( );
-      List<TreeNode<List<Integer>>> children = buildChildren( node.getData( ), node.getIndices( ),
-                                                             node.getLimit( ) );
-      for ( TreeNode<List<Integer>> child : children ) {
-        TreeNode<List<Integer>> newChild = new TreeNode<List<Integer>>( child.getData( ) );
-        newChild.setIndices( child.getIndices( ) );
-        newChild.setLimit( child.getLimit( ) );
-        newChild.setChildren( child.getChildren( ) );
-        toVisit.add( newChild );
-      }
-      smallestNodes.add( node );
+  public SubsetNode buildTree( long[] list, int n ) {
+    return SubsetCursor.buildTree( list, n );
+  }
+  
+  /*
+   * The cursor keeps every subset it has already visited, so probing a rank at or below any
+   * earlier probe is a lookup and probing a greater rank resumes where the last probe stopped
+   */
+  public SubsetNode findKthMin( SubsetCursor cursor, long k ) {
+    if ( listener == SearchListener.NONE ) {
+      return cursor.findKthMin( k );
     }
-    return smallestNodes.get( k - 1 ).getData( );
+    long popped = cursor.popped;
+    long generated = cursor.generated;
+    long skipped = cursor.skipped;
+    SubsetNode node = cursor.findKthMin( k );
+    listener.probed( cursor.order, k, cursor.popped - popped, cursor.generated - generated,
+                     cursor.skipped - skipped, cursor.frontierPeak );
+    return node;
   }
   
-  public int sum( List<Integer> node ) {
-    int sum = 0;
-    for ( Integer n : node ) {
-      sum += n;
+  /*
+   * Walks the cursor up to the sum as SubsetCursor.seekSum does, reporting the probe to the
+   * listener with the rank the walk stopped at
+   */
+  public SubsetNode seekSum( SubsetCursor cursor, long sum ) {
+    if ( listener == SearchListener.NONE ) {
+      return cursor.seekSum( sum );
     }
-    return sum;
+    long popped = cursor.popped;
+    long generated = cursor.generated;
+    long skipped = cursor.skipped;
+    SubsetNode node = cursor.seekSum( sum );
+    listener.probed( cursor.order, cursor.getPosition( ), cursor.popped - popped,
+                     cursor.generated - generated, cursor.skipped - skipped,
+                     cursor.frontierPeak );
+    return node;
   }
   
-  public void printList( List<Integer> list ) {
-    for ( int i = 0; i < list.size( ); ++i ) {
-      System.out.print( list.get( i ) + "\t" );
+  public void printList( long[] list ) {
+    for ( int i = 0; i < list.length; ++i ) {
+      System.out.print( list[i] + "\t" );
     }
     System.out.println( );
   }
   
-  public static int choose( int n, int k ) {
-    if (k >  n) {
-      return 0;
-    }
-    if (k == 0) {
-      return 1;
-    }
-    if (k > n / 2) {
-      return choose(n, n - k);
-    }
-    return n * choose(n - 1, k - 1) / k;
+  /*
+   * C(n, k), or Long.MAX_VALUE if it is too large for a long
+   */
+  public static long choose( int n, int k ) {
+    return BinomialTable.saturatedChoose( n, k );
   }
   
   public static void main(String[] args) {
-    new SubsetSum( );
+    new SubsetSum( args.length > 0 && args[0].equals( "-parallel" ) );
   }
   
 }
@@ -0,0 +1,32 @@
+/**
+ * A subset of an input set that sums to the target sum, as found by a SubsetSumSolver. The
+ * subset is given by the positions of its elements in the sorted input set, in increasing order,
+ * along with the unscaled elements themselves.
+ */
+
+import java.util.Arrays;
+
+public class SubsetSumResult {
+
+  public int[] indices;
+  public long[] values;
+  public long sum;
+
+  public SubsetSumResult( ScaledInput input, int[] indices ) {
+    this.indices = indices;
+    this.values = new long[indices.length];
+    for ( int i = 0; i < indices.length; ++i ) {
+      values[i] = input.values[indices[i]];
+      sum += values[i];
+    }
+  }
+
+  public int size( ) {
+    return indices.length;
+  }
+
+  public String toString( ) {
+    return Arrays.toString( values ) + "=" + sum;
+  }
+
+}
@@ -0,0 +1,26 @@
+/**
+ * An algorithm for the subset sum problem: given a scaled input set and a target sum, find a
+ * non-empty subset of the input set whose unscaled elements sum to the target.
+ */
+
+public interface SubsetSumSolver {
+
+  /*
+   * Returns a subset that sums to the target, or null if no subset does
+   */
+  SubsetSumResult solve( ScaledInput input, long target );
+
+  /*
+   * Returns a subset for each of the targets, which must be sorted in non-decreasing order, with
+   * null for each target that no subset sums to. Solvers that can share work between the targets
+   * override this to do so.
+   */
+  default SubsetSumResult[] solveAll( ScaledInput input, long[] targets ) {
+    SubsetSumResult[] results = new SubsetSumResult[targets.length];
+    for ( int i = 0; i < targets.length; ++i ) {
+      results[i] = solve( input, targets[i] );
+    }
+    return results;
+  }
+
+}
@@ -71,6 +71,18 @@ public class SubsetTree {
     return tree;
   }
   
+  /*
+   * Builds the same tree laid out in flat arrays, which holds far larger trees than TreeNodes can
+   * and can be saved to a file and opened again without being rebuilt
+   */
+  public FlatSubsetTree buildFlatTree( ArrayList<Integer> list ) {
+    long[] values = new long[list.size( )];
+    for ( int i = 0; i < values.length; ++i ) {
+      values[i] = list.get( i );
+    }
+    return FlatSubsetTree.build( values, subsetLen );
+  }
+  
   public List<TreeNode<List<Integer>>> buildChildren( List<Integer> list, List<Integer> indices, int limit ) {
     ArrayList<TreeNode<List<Integer>>> children = new ArrayList<TreeNode<List<Integer>>>();
     
@@ -156,8 +168,8 @@ public class SubsetTree {
     return smallestNodes.get( k - 1 ).getData( );
   }
   
-  public int sum( List<Integer> node ) {
-    int sum = 0;
+  public long sum( List<Integer> node ) {
+    long sum = 0;
     for ( Integer n : node ) {
       sum += n;
     }
@@ -0,0 +1,103 @@
+/**
+ * Solves the subset sum problem by searching the virtual Subset Heaps of the scaled input set,
+ * as SubsetSum does, from n = 1 upwards. The subset returned is one of the smallest size that
+ * sums to the target, unless cheapestFirst is set, in which case it is whichever is reached
+ * first when the heaps are searched from the one nearest the target.
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+public class SubsetTreeSolver implements SubsetSumSolver {
+
+  public SearchMode mode = SearchMode.THRESHOLD;
+  public boolean dualEnded = true;
+  public SubsetRankCache cache;
+  // When set, each distinct multiset of the input values is searched once, which shrinks the
+  // Subset Heaps of inputs with many repeated values
+  public boolean multiset = false;
+  public boolean cheapestFirst = false;
+  // When set, the Subset Heaps are walked with their nodes kept off the Java heap
+  public boolean offHeap = false;
+  // Receives the work done by every search, such as a SearchStatistics or a JfrSearchListener
+  public SearchListener listener = SearchListener.NONE;
+  // When set, the n-sized Subset Heaps are searched concurrently on this pool
+  public ForkJoinPool pool;
+
+  public SubsetSumResult solve( ScaledInput input, long target ) {
+    if ( input.size( ) == 0 ) {
+      return null;
+    }
+    SubsetSum search = search( input );
+    SubsetNode node;
+    if ( pool != null ) {
+      node = search.parallelSearch( target, true, pool );
+    }
+    else {
+      node = search.search( target );
+    }
+    return node == null ? null : new SubsetSumResult( input, node.getIndices( ) );
+  }
+
+  /*
+   * Walks each n-sized Subset Heap once for all of the targets together
+   */
+  public SubsetSumResult[] solveAll( ScaledInput input, long[] targets ) {
+    SubsetSumResult[] results = new SubsetSumResult[targets.length];
+    if ( input.size( ) == 0 ) {
+      return results;
+    }
+    SubsetNode[] nodes = search( input ).searchAll( targets );
+    for ( int i = 0; i < nodes.length; ++i ) {
+      if ( nodes[i] != null ) {
+        results[i] = new SubsetSumResult( input, nodes[i].getIndices( ) );
+      }
+    }
+    return results;
+  }
+
+  /*
+   * Streams every subset that sums to the target, in increasing order of size, searching only as
+   * far as the stream is consumed
+   */
+  public Stream<SubsetSumResult> solveEvery( ScaledInput input, long target ) {
+    if ( input.size( ) == 0 ) {
+      return Stream.empty( );
+    }
+    return search( input ).solutionStream( target )
+                          .map( node -> new SubsetSumResult( input, node.getIndices( ) ) );
+  }
+
+  /*
+   * Returns the subset whose sum is nearest the target, or the nearest found before the budget
+   * ran out, which the budget reports. Returns null only if the input is empty.
+   */
+  public SubsetSumResult solveClosest( ScaledInput input, long target, SearchBudget budget ) {
+    if ( input.size( ) == 0 ) {
+      return null;
+    }
+    SubsetNode node = search( input ).searchClosest( target, budget );
+    return new SubsetSumResult( input, node.getIndices( ) );
+  }
+
+  /*
+   * Prepares a copy of the input set once for any number of concurrent queries, searched with the
+   * settings this solver has now. The pool and the cache are not used by the prepared set.
+   */
+  public PreparedSubsetSum prepare( ScaledInput input ) {
+    return new PreparedSubsetSum( input, this );
+  }
+
+  private SubsetSum search( ScaledInput input ) {
+    SubsetSum search = new SubsetSum( input );
+    search.mode = mode;
+    search.dualEnded = dualEnded;
+    search.cache = cache;
+    search.multiset = multiset;
+    search.cheapestFirst = cheapestFirst;
+    search.offHeap = offHeap;
+    search.listener = listener;
+    return search;
+  }
+
+}
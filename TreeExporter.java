@@ -0,0 +1,225 @@
+/**
+ * Writes a tree out as text, one node at a time, in any of the ExportFormats.
+ *
+ * The tree is walked depth first from an explicit stack rather than by recursion, so that no tree
+ * is too deep to export, and each node is written straight to the output as it is reached, so
+ * that the time taken grows only with the number of nodes written. The children of a node are
+ * only asked for when the node is reached, which lets a virtual tree be exported from its
+ * generateChildren without ever being built in full. At the depth limit they are not asked for at
+ * all; the exporter only asks whether there are any.
+ *
+ * The export can be limited to a depth below the root and to a number of nodes. Where children
+ * are left out by either limit, the bracket format writes "..." in their place, the JSON format
+ * marks their parent as truncated, and the DOT format draws an edge from their parent to a "..."
+ * node.
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+public class TreeExporter<N> {
+
+  public ExportFormat format = ExportFormat.BRACKET;
+  // The depth below the root beyond which no nodes are written
+  public int maxDepth = Integer.MAX_VALUE;
+  // The number of nodes after which no more are written
+  public long maxNodes = Long.MAX_VALUE;
+  private Function<N, List<N>> children;
+  private Predicate<N> hasChildren;
+  private Function<N, String> label;
+
+  public TreeExporter( Function<N, List<N>> children, Function<N, String> label ) {
+    this( children, node -> {
+      List<N> nodes = children.apply( node );
+      return nodes != null && !nodes.isEmpty( );
+    }, label );
+  }
+
+  /*
+   * An exporter that asks whether a node has children, rather than for the children themselves,
+   * of the nodes at the depth limit
+   */
+  public TreeExporter( Function<N, List<N>> children, Predicate<N> hasChildren,
+                       Function<N, String> label ) {
+    this.children = children;
+    this.hasChildren = hasChildren;
+    this.label = label;
+  }
+
+  /*
+   * An exporter of trees of TreeNodes, labelled by their data
+   */
+  public static <T> TreeExporter<TreeNode<T>> forTree( ) {
+    return new TreeExporter<TreeNode<T>>( TreeNode::getChildren, TreeNode::hasChildren,
+                                          node -> node.toString( ) );
+  }
+
+  /*
+   * An exporter of the virtual Subset Heap walked by the cursor, from any node of it, labelled by
+   * the elements of their subsets. Each node's children are generated as it is written, without
+   * being counted by the cursor, so a heap can be exported while it is searched.
+   */
+  public static TreeExporter<SubsetNode> forHeap( SubsetCursor heap ) {
+    return new TreeExporter<SubsetNode>( node -> {
+      List<SubsetNode> children = new ArrayList<SubsetNode>( );
+      heap.generateChildren( node, children );
+      return children;
+    }, heap::hasChildren, node -> Arrays.toString( node.getData( heap.values ) ) );
+  }
+
+  /*
+   * An exporter of a flat Subset Tree, from the id of any node of it, labelled by the elements of
+   * their subsets
+   */
+  public static TreeExporter<Integer> forFlatTree( FlatSubsetTree tree ) {
+    return new TreeExporter<Integer>( id -> {
+      List<Integer> ids = new ArrayList<Integer>( tree.childCount( id ) );
+      for ( int i = 0; i < tree.childCount( id ); ++i ) {
+        ids.add( tree.child( id, i ) );
+      }
+      return ids;
+    }, id -> tree.childCount( id ) > 0,
+       id -> Arrays.toString( tree.node( id ).getData( tree.values ) ) );
+  }
+
+  /*
+   * Writes the tree below the root to the stream as UTF-8
+   */
+  public void export( N root, OutputStream out ) throws IOException {
+    Writer writer = new BufferedWriter( new OutputStreamWriter( out, StandardCharsets.UTF_8 ) );
+    export( root, writer );
+    writer.flush( );
+  }
+
+  /*
+   * Writes the tree below the root to the writer, which is not flushed
+   */
+  public void export( N root, Writer out ) throws IOException {
+    if ( format == ExportFormat.DOT ) {
+      out.write( "digraph SubsetTree {\n" );
+    }
+    ArrayList<Frame<N>> stack = new ArrayList<Frame<N>>( );
+    long written = 0;
+    stack.add( open( root, -1, written++, 0, out ) );
+    while ( !stack.isEmpty( ) ) {
+      Frame<N> frame = stack.get( stack.size( ) - 1 );
+      if ( frame.next < frame.children.size( ) && written < maxNodes ) {
+        N child = frame.children.get( frame.next++ );
+        if ( frame.next > 1 ) {
+          out.write( format == ExportFormat.BRACKET ? ", " : format == ExportFormat.JSON ? "," : "" );
+        }
+        stack.add( open( child, frame.id, written++, frame.depth + 1, out ) );
+      }
+      else {
+        close( frame, frame.next < frame.children.size( ), out );
+        stack.remove( stack.size( ) - 1 );
+      }
+    }
+    if ( format == ExportFormat.DOT ) {
+      out.write( "}\n" );
+    }
+  }
+
+  /*
+   * Writes the start of a node, and returns its frame with its children, if they are to be
+   * written, or else with the children that are left out
+   */
+  private Frame<N> open( N node, long parent, long id, int depth, Writer out ) throws IOException {
+    String text = label.apply( node );
+    switch ( format ) {
+      case JSON:
+        out.write( "{\"label\":\"" );
+        out.write( escape( text ) );
+        out.write( "\",\"children\":[" );
+        break;
+      case DOT:
+        out.write( "  n" + id + " [label=\"" + escape( text ) + "\"];\n" );
+        if ( parent >= 0 ) {
+          out.write( "  n" + parent + " -> n" + id + ";\n" );
+        }
+        break;
+      default:
+        out.write( text );
+        out.write( ":[" );
+    }
+    if ( depth >= maxDepth ) {
+      // The children are counted as left out without being generated
+      Frame<N> frame = new Frame<N>( id, depth, Collections.<N>emptyList( ) );
+      frame.left = hasChildren.test( node );
+      return frame;
+    }
+    List<N> nodes = children.apply( node );
+    return new Frame<N>( id, depth, nodes == null ? Collections.<N>emptyList( ) : nodes );
+  }
+
+  private void close( Frame<N> frame, boolean truncated, Writer out ) throws IOException {
+    truncated |= frame.left;
+    switch ( format ) {
+      case JSON:
+        out.write( truncated ? "],\"truncated\":true}" : "]}" );
+        break;
+      case DOT:
+        if ( truncated ) {
+          out.write( "  n" + frame.id + "_more [label=\"...\", shape=plaintext];\n" );
+          out.write( "  n" + frame.id + " -> n" + frame.id + "_more;\n" );
+        }
+        break;
+      default:
+        if ( truncated ) {
+          out.write( frame.next > 0 ? ", ..." : "..." );
+        }
+        out.write( "]" );
+    }
+  }
+
+  /*
+   * Escapes a label for a double-quoted string in JSON or DOT
+   */
+  private static String escape( String text ) {
+    StringBuilder escaped = new StringBuilder( text.length( ) );
+    for ( int i = 0; i < text.length( ); ++i ) {
+      char c = text.charAt( i );
+      if ( c == '"' || c == '\\' ) {
+        escaped.append( '\\' ).append( c );
+      }
+      else if ( c < 0x20 ) {
+        escaped.append( String.format( "\\u%04x", (int) c ) );
+      }
+      else {
+        escaped.append( c );
+      }
+    }
+    return escaped.toString( );
+  }
+
+  /*
+   * A node being written, with its children and how many of them have been written
+   */
+  private static class Frame<N> {
+
+    private long id;
+    private int depth;
+    private List<N> children;
+    private int next = 0;
+    // Whether the node has children that were left out by the depth limit
+    private boolean left = false;
+
+    public Frame( long id, int depth, List<N> children ) {
+      this.id = id;
+      this.depth = depth;
+      this.children = children;
+    }
+
+  }
+
+}
@@ -2,11 +2,12 @@
  * This code comes from https://github.com/vivin/GenericTree
  * It is used as the generic node for a subset tree
  */
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class TreeNode<T> {
   
@@ -104,21 +105,20 @@ public class TreeNode<T> {
     return getData().hashCode();
   }
   
+  /*
+   * Writes this node and its descendants in the bracket format of TreeExporter, in time linear in
+   * the length of the result
+   */
   public String toStringVerbose() {
-    String stringRepresentation = getData().toString() + ":[";
-    
-    for (TreeNode<T> node : getChildren()) {
-      stringRepresentation += node.toStringVerbose() + ", ";
+    StringWriter writer = new StringWriter();
+    try {
+      TreeExporter.<T>forTree().export(this, writer);
     }
-    
-    //Pattern.DOTALL causes ^ and $ to match
-    Pattern pattern = Pattern.compile(", $", Pattern.DOTALL);
-    Matcher matcher = pattern.matcher(stringRepresentation);
-    
-    stringRepresentation = matcher.replaceFirst("");
-    stringRepresentation += "]";
-    
-    return stringRepresentation;
+    catch (IOException e) {
+      // A StringWriter does not throw
+      throw new UncheckedIOException(e);
+    }
+    return writer.toString();
   }
 }
 
@@ -127,8 +127,8 @@ class NodeComparator implements Comparator {
   public int compare( Object o1, Object o2 ) {
     List<Integer> list1 = (List<Integer>)(((TreeNode)o1).getData());
     List<Integer> list2 = (List<Integer>)(((TreeNode)o2).getData());
-    int sum1 = 0;
-    int sum2 = 0;
+    long sum1 = 0;
+    long sum2 = 0;
     for ( int i = 0; i < list1.size(); ++i ) {
       sum1 += list1.get( i );
       sum2 += list2.get( i );
@@ -0,0 +1,99 @@
+/**
+ * The implementation of the benchmarked operations over the Subset Tree classes, loaded by name
+ * from the benchmarks in subsettree.bench.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import subsettree.bench.Workload;
+
+public class SubsetTreeWorkload implements Workload {
+
+  // The number of nodes whose children are generated by each buildChildren call
+  public static final int SAMPLE_SIZE = 1024;
+
+  public ScaledInput input;
+  public int order;
+  public SubsetNode root;
+  public SubsetCursor expander;
+  public ArrayList<SubsetNode> sample = new ArrayList<SubsetNode>( );
+  public ArrayList<SubsetNode> children = new ArrayList<SubsetNode>( );
+
+  public void setUp( long[] values, int order ) {
+    input = new ScaledInput( values );
+    this.order = order;
+    root = SubsetCursor.buildTree( input.scaled, order );
+    expander = new SubsetCursor( input.scaled, root );
+    sample.clear( );
+    SubsetCursor cursor = new SubsetCursor( input.scaled, root );
+    for ( int k = 1; k <= SAMPLE_SIZE && cursor.hasNext( ); ++k ) {
+      sample.add( cursor.next( ) );
+    }
+  }
+
+  public long treeSize( ) {
+    return new SubsetSum( input ).treeSize( order );
+  }
+
+  public long findKthMin( int k ) {
+    SubsetCursor cursor = new SubsetCursor( input.scaled, root );
+    SubsetNode node = cursor.findKthMin( k );
+    return node == null ? Long.MIN_VALUE : node.getSum( );
+  }
+
+  public int buildChildren( ) {
+    int count = 0;
+    for ( int i = 0; i < sample.size( ); ++i ) {
+      children.clear( );
+      expander.buildChildren( sample.get( i ), children );
+      count += children.size( );
+    }
+    return count;
+  }
+
+  public int incrementList( ) {
+    int count = 0;
+    for ( int i = 0; i < sample.size( ); ++i ) {
+      SubsetNode node = sample.get( i );
+      if ( node.indices[node.size( ) - 1] == input.size( ) - 1 ) {
+        continue;
+      }
+      for ( int idx = node.size( ) - 1; idx >= node.limit; --idx ) {
+        if ( expander.incrementList( node, idx ) != null ) {
+          ++count;
+        }
+      }
+    }
+    return count;
+  }
+
+  public int solve( String engine, long target ) {
+    SubsetSumResult result = solver( engine ).solve( input, target );
+    return result == null ? -1 : result.size( );
+  }
+
+  private static SubsetSumSolver solver( String engine ) {
+    switch ( engine ) {
+      case "binary":
+        SubsetTreeSolver binary = new SubsetTreeSolver( );
+        binary.mode = SearchMode.BINARY;
+        return binary;
+      case "interpolation":
+        SubsetTreeSolver interpolation = new SubsetTreeSolver( );
+        interpolation.mode = SearchMode.INTERPOLATION;
+        return interpolation;
+      case "threshold":
+        return new SubsetTreeSolver( );
+      case "mitm":
+        return new MeetInTheMiddleSolver( );
+      case "bitset":
+        return new BitsetSolver( );
+      case "auto":
+        return new AutoSolver( );
+      default:
+        throw new IllegalArgumentException( "Unknown engine " + engine );
+    }
+  }
+
+}
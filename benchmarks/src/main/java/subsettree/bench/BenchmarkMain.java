@@ -0,0 +1,24 @@
+package subsettree.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected on the command line, as the JMH main class does, with the GC
+ * profiler always attached so that every result reports its allocation rate.
+ */
+public final class BenchmarkMain {
+
+  private BenchmarkMain( ) {
+  }
+
+  public static void main( String[] args ) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions options = new CommandLineOptions( args );
+    new Runner( new OptionsBuilder( ).parent( options ).addProfiler( GCProfiler.class ).build( ) ).run( );
+  }
+
+}
@@ -0,0 +1,68 @@
+package subsettree.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the walk of a single n-sized Subset Heap: finding the k'th smallest subset with a
+ * new cursor, and generating children from a fixed sample of nodes.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class HeapBenchmark {
+
+  @Param( { "24", "48" } )
+  public int size;
+
+  @Param( { "3", "12" } )
+  public int order;
+
+  // The rank walked to, clamped to the size of the heap where the grid asks for more subsets than
+  // it holds, as C(24, 3) = 2024 < 10000 does
+  @Param( { "100", "10000" } )
+  public int k;
+
+  @Param( { "uniform", "wide", "duplicates" } )
+  public String distribution;
+
+  private Workload workload;
+  private int rank;
+
+  @Setup
+  public void setUp( ) {
+    workload = Workload.load( );
+    workload.setUp( Inputs.values( distribution, size, 42 ), order );
+    rank = (int) Math.min( k, workload.treeSize( ) );
+  }
+
+  @Benchmark
+  public long findKthMin( ) {
+    return workload.findKthMin( rank );
+  }
+
+  @Benchmark
+  public int buildChildren( ) {
+    return workload.buildChildren( );
+  }
+
+  @Benchmark
+  public int incrementList( ) {
+    return workload.incrementList( );
+  }
+
+}
@@ -0,0 +1,67 @@
+package subsettree.bench;
+
+import java.util.Random;
+
+/**
+ * Generates the input sets and targets of the benchmarks. Every value generated is even, so that
+ * a target that misses is made by adding one to a target that hits.
+ */
+public final class Inputs {
+
+  private Inputs( ) {
+  }
+
+  /*
+   * Returns size values drawn from the named distribution with a fixed seed, each uniform over
+   * the even values of its range:
+   *   uniform    - [-1000, 1000]
+   *   wide       - [-10^9, 10^9]
+   *   duplicates - [-10, 10], so that most values repeat
+   *   positive   - [2, 1000]
+   */
+  public static long[] values( String distribution, int size, long seed ) {
+    Random random = new Random( seed );
+    long[] values = new long[size];
+    for ( int i = 0; i < size; ++i ) {
+      switch ( distribution ) {
+        case "uniform":
+          values[i] = random.nextInt( 1001 ) - 500;
+          break;
+        case "wide":
+          values[i] = random.nextInt( 1000000001 ) - 500000000;
+          break;
+        case "duplicates":
+          values[i] = random.nextInt( 11 ) - 5;
+          break;
+        case "positive":
+          values[i] = random.nextInt( 500 ) + 1;
+          break;
+        default:
+          throw new IllegalArgumentException( "Unknown distribution " + distribution );
+      }
+      values[i] *= 2;
+    }
+    return values;
+  }
+
+  /*
+   * Returns the sum of a random third of the values when hit is set, and one more than that
+   * sum, which no subset of even values can reach, otherwise
+   */
+  public static long target( long[] values, boolean hit, long seed ) {
+    Random random = new Random( seed );
+    long sum = 0;
+    boolean empty = true;
+    for ( long value : values ) {
+      if ( random.nextInt( 3 ) == 0 ) {
+        sum += value;
+        empty = false;
+      }
+    }
+    if ( empty ) {
+      sum = values[0];
+    }
+    return hit ? sum : sum + 1;
+  }
+
+}
@@ -0,0 +1,57 @@
+package subsettree.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks solving the subset sum problem from start to finish with each engine, for targets
+ * that some subset sums to and targets that none does.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class SolveBenchmark {
+
+  @Param( { "12", "20" } )
+  public int size;
+
+  @Param( { "uniform", "wide", "duplicates" } )
+  public String distribution;
+
+  @Param( { "true", "false" } )
+  public boolean hit;
+
+  @Param( { "binary", "interpolation", "threshold", "mitm", "bitset", "auto" } )
+  public String engine;
+
+  private Workload workload;
+  private long target;
+
+  @Setup
+  public void setUp( ) {
+    long[] values = Inputs.values( distribution, size, 42 );
+    target = Inputs.target( values, hit, 7 );
+    workload = Workload.load( );
+    workload.setUp( values, 1 );
+  }
+
+  @Benchmark
+  public int solve( ) {
+    return workload.solve( engine, target );
+  }
+
+}
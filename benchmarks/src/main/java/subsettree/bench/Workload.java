@@ -0,0 +1,53 @@
+package subsettree.bench;
+
+/**
+ * The operations under benchmark. The Subset Tree classes live in the unnamed package, which
+ * code in a named package cannot refer to and which JMH does not accept benchmarks in, so the
+ * benchmarks reach them through this interface, implemented by SubsetTreeWorkload in the unnamed
+ * package.
+ */
+public interface Workload {
+
+  /*
+   * Prepares the input set, and the n-sized Subset Heap of it, for the calls that follow
+   */
+  void setUp( long[] input, int order );
+
+  /*
+   * The number of subsets in the Subset Heap, saturating at Long.MAX_VALUE
+   */
+  long treeSize( );
+
+  /*
+   * Walks a new cursor over the Subset Heap to the k'th smallest subset and returns its sum
+   */
+  long findKthMin( int k );
+
+  /*
+   * Generates the children of a fixed sample of nodes of the Subset Heap and returns how many
+   * there were
+   */
+  int buildChildren( );
+
+  /*
+   * Increments each node of the same sample at each of its indices and returns how many children
+   * that produced
+   */
+  int incrementList( );
+
+  /*
+   * Solves the subset sum problem for the target with the named engine and returns the size of
+   * the subset found, or -1 if there is none
+   */
+  int solve( String engine, long target );
+
+  static Workload load( ) {
+    try {
+      return (Workload) Class.forName( "SubsetTreeWorkload" ).getDeclaredConstructor( ).newInstance( );
+    }
+    catch ( ReflectiveOperationException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+}
@@ -0,0 +1,61 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchSolverTest {
+
+  private static BatchSolver.ProblemReader reader( byte[] bytes ) {
+    return new BatchSolver.ProblemReader(
+        Channels.newChannel( new ByteArrayInputStream( bytes ) ), true );
+  }
+
+  @Test
+  public void oversizedRecordIsSkippedAsAnError( ) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+    DataOutputStream out = new DataOutputStream( bytes );
+    int size = BatchSolver.MAX_SET_SIZE + 1;
+    out.writeInt( size );
+    out.writeLong( 5 );
+    for ( int i = 0; i < size; ++i ) {
+      out.writeLong( i );
+    }
+    out.writeInt( 3 );
+    out.writeLong( 9 );
+    out.writeLong( 4 );
+    out.writeLong( -2 );
+    out.writeLong( 7 );
+    BatchSolver.ProblemReader reader = reader( bytes.toByteArray( ) );
+    BatchSolver.Problem oversized = reader.next( );
+    assertEquals( 5, oversized.target );
+    assertNull( oversized.values );
+    assertEquals( "The input set has more than " + BatchSolver.MAX_SET_SIZE + " elements",
+                  oversized.error );
+    BatchSolver.Problem next = reader.next( );
+    assertNull( next.error );
+    assertEquals( 9, next.target );
+    assertArrayEquals( new long[] { 4, -2, 7 }, next.values );
+    assertNull( reader.next( ) );
+  }
+
+  @Test
+  public void oversizedRecordCutShortIsNotAllocated( ) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+    DataOutputStream out = new DataOutputStream( bytes );
+    out.writeInt( Integer.MAX_VALUE );
+    out.writeLong( 5 );
+    out.writeLong( 1 );
+    BatchSolver.ProblemReader reader = reader( bytes.toByteArray( ) );
+    assertThrows( EOFException.class, reader::next );
+  }
+
+}
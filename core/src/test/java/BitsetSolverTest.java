@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class BitsetSolverTest {
+
+  /*
+   * Checks that the solver finds, among the given number of zeros followed by 3, 5 and 7, the
+   * subset of 3, 5 and 7 at the given positions among them, which is the only one to sum to the
+   * target without zeros. The elements sit at positions that only a record of elements wide
+   * enough for the size of the input can hold.
+   */
+  private static void assertFindsTheTail( int zeros, long target, int... positions ) {
+    long[] values = new long[zeros + 3];
+    values[zeros] = 3;
+    values[zeros + 1] = 5;
+    values[zeros + 2] = 7;
+    ScaledInput input = new ScaledInput( values );
+    BitsetSolver solver = new BitsetSolver( );
+    solver.fallback = ( in, t ) -> {
+      throw new AssertionError( "fell back" );
+    };
+    assertTrue( solver.fits( input ) );
+    SubsetSumResult result = solver.solve( input, target );
+    SubsetSumSolverTest.assertSolves( input, target, result, input.size( ) + " elements" );
+    int[] expected = new int[positions.length];
+    for ( int i = 0; i < positions.length; ++i ) {
+      expected[i] = zeros + positions[i];
+    }
+    // Zeros are never recorded, as they make no sum reachable that was not already
+    assertEquals( Arrays.toString( expected ), Arrays.toString( result.indices ) );
+  }
+
+  // An element recorded in too few bytes is followed back to the wrong sum, which may never lead
+  // back to the empty sum, so the solver is stopped rather than left to spin
+  @Test
+  @Timeout( value = 60, threadMode = Timeout.ThreadMode.SEPARATE_THREAD )
+  public void elementsAtPositionsOfEachRecordWidthAreFollowedBack( ) {
+    // Up to 256 elements, recorded in one byte each
+    assertFindsTheTail( 253, 12, 1, 2 );
+    // Up to 65536, in two
+    assertFindsTheTail( 300, 12, 1, 2 );
+    assertFindsTheTail( 65533, 10, 0, 2 );
+    // More, in four
+    assertFindsTheTail( 70000, 15, 0, 1, 2 );
+  }
+
+  @Test
+  public void targetZeroIsReachedByANonEmptySubset( ) {
+    BitsetSolver solver = new BitsetSolver( );
+    ScaledInput input = new ScaledInput( new long[] { -7, -2, 3, 4, 11 } );
+    SubsetSumSolverTest.assertSolves( input, 0, solver.solve( input, 0 ), "-7 + 3 + 4" );
+    ScaledInput positive = new ScaledInput( new long[] { 2, 3, 9 } );
+    assertNull( solver.solve( positive, 0 ) );
+    ScaledInput negative = new ScaledInput( new long[] { -8, -1 } );
+    assertNull( solver.solve( negative, 0 ) );
+    ScaledInput zero = new ScaledInput( new long[] { -3, 0, 5 } );
+    SubsetSumResult result = solver.solve( zero, 0 );
+    SubsetSumSolverTest.assertSolves( zero, 0, result, "0" );
+    // The element closing the only zero sum, past a byte's worth of elements that
+    // cannot close it
+    long[] values = new long[302];
+    Arrays.fill( values, 2 );
+    values[0] = -9;
+    values[301] = 9;
+    ScaledInput far = new ScaledInput( values );
+    result = solver.solve( far, 0 );
+    SubsetSumSolverTest.assertSolves( far, 0, result, "far" );
+    assertEquals( "[0, 301]", Arrays.toString( result.indices ) );
+  }
+
+  @Test
+  public void inputOverTheMemoryBudgetFallsBack( ) {
+    BitsetSolver solver = new BitsetSolver( );
+    ScaledInput input = new ScaledInput( new long[] { -1000, 7, 250, 999 } );
+    assertTrue( solver.fits( input ) );
+    solver.memoryBudget = 64;
+    assertFalse( solver.fits( input ) );
+    long[] targets = new long[1];
+    solver.fallback = ( in, target ) -> {
+      targets[0] = target;
+      return null;
+    };
+    assertNull( solver.solve( input, 257 ) );
+    assertEquals( 257, targets[0] );
+    ScaledInput wide = new ScaledInput( new long[] { 1, Integer.MAX_VALUE } );
+    assertFalse( new BitsetSolver( ).fits( wide ) );
+  }
+
+}
@@ -0,0 +1,188 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DirectSubsetStoreTest {
+
+  // The records of 1-sized nodes, and of the frontier heap, in each chunk
+  private static final int NODES_PER_CHUNK = SubsetRecords.CHUNK_BYTES / 16;
+  private static final int HEAP_PER_CHUNK = SubsetRecords.CHUNK_BYTES / 12;
+
+  @TempDir
+  Path directory;
+
+  /*
+   * A 1-sized node whose sum and limit follow from its id, so that a node read back from the
+   * wrong slot is told apart from the right one. Many nodes share each sum.
+   */
+  private static SubsetNode node( int id ) {
+    long sum = ( id * 2654435761L ) % 100003;
+    return new SubsetNode( new int[] { id }, sum, id % 7 );
+  }
+
+  private static void assertIsNode( SubsetNode node ) {
+    SubsetNode expected = node( node.indices[0] );
+    assertEquals( expected.sum, node.sum, "sum of " + node.indices[0] );
+    assertEquals( expected.limit, node.limit, "limit of " + node.indices[0] );
+  }
+
+  /*
+   * Polls the given number of nodes from both stores, checking that they come out in the same
+   * order of sum and that each is a node that was pushed
+   */
+  private static void assertPollsAlike( SubsetStore store, SubsetStore reference, int count ) {
+    for ( int i = 0; i < count; ++i ) {
+      assertEquals( reference.peekSum( ), store.peekSum( ) );
+      SubsetNode expected = reference.poll( );
+      SubsetNode node = store.poll( );
+      assertEquals( expected.sum, node.sum, "poll " + i );
+      assertIsNode( node );
+    }
+    assertEquals( reference.frontierSize( ), store.frontierSize( ) );
+  }
+
+  @Test
+  public void frontierPastAChunkReusesTheSlotsOfPolledNodes( ) {
+    DirectSubsetStore store = new DirectSubsetStore( 1 );
+    HeapSubsetStore reference = new HeapSubsetStore( 1 );
+    // Past a chunk of node slots and a chunk of heap records
+    int pushed = HEAP_PER_CHUNK + 1000;
+    assertTrue( pushed > NODES_PER_CHUNK );
+    for ( int id = 0; id < pushed; ++id ) {
+      store.push( node( id ) );
+      reference.push( node( id ) );
+    }
+    assertEquals( pushed, store.frontierSize( ) );
+    for ( int i = 0; i < pushed; i += 9973 ) {
+      assertIsNode( store.frontierNode( i ) );
+    }
+    assertIsNode( store.frontierNode( pushed - 1 ) );
+    assertPollsAlike( store, reference, 500000 );
+
+    // The nodes pushed now take the slots freed by the polls, from both sides of the boundary
+    long bytes = store.memoryBytes( );
+    for ( int id = pushed; id < pushed + 400000; ++id ) {
+      store.push( node( id ) );
+      reference.push( node( id ) );
+    }
+    assertEquals( bytes, store.memoryBytes( ) );
+    assertPollsAlike( store, reference, store.frontierSize( ) );
+    assertNull( store.poll( ) );
+    assertNull( store.peek( ) );
+  }
+
+  @Test
+  public void visitedNodesPastAChunkKeepTheirRanks( ) {
+    DirectSubsetStore store = new DirectSubsetStore( 1 );
+    int count = NODES_PER_CHUNK + 5000;
+    for ( int id = 0; id < count; ++id ) {
+      store.append( node( id ) );
+    }
+    assertEquals( count, store.visitedCount( ) );
+    int[] ranks = { 1, NODES_PER_CHUNK - 1, NODES_PER_CHUNK, NODES_PER_CHUNK + 1,
+                    NODES_PER_CHUNK + 2, count };
+    for ( int rank : ranks ) {
+      SubsetNode node = store.visited( rank );
+      assertEquals( rank - 1, node.indices[0] );
+      assertIsNode( node );
+      assertEquals( node.sum, store.visitedSum( rank ) );
+    }
+    for ( int rank = 1; rank <= count; rank += 7919 ) {
+      assertEquals( rank - 1, store.visited( rank ).indices[0] );
+    }
+  }
+
+  @Test
+  public void offHeapCursorWalksAsTheHeapCursorDoes( ) {
+    long[] values = new long[36];
+    for ( int i = 0; i < values.length; ++i ) {
+      values[i] = 3 * i + i * i % 11;
+    }
+    Arrays.sort( values );
+    // Nodes of 132 bytes, of which the visited ones cross a chunk
+    int n = 30;
+    SubsetCursor direct = SubsetCursor.create( values, n, false, true );
+    SubsetCursor heap = SubsetCursor.create( values, n, false, false );
+    int walked = SubsetRecords.CHUNK_BYTES / ( 12 + 4 * n ) + 100;
+    for ( int k = 1; k <= walked; ++k ) {
+      SubsetNode expected = heap.next( );
+      SubsetNode node = direct.next( );
+      assertEquals( expected.sum, node.sum, "rank " + k );
+      long sum = 0;
+      for ( int index : node.indices ) {
+        sum += values[index];
+      }
+      assertEquals( node.sum, sum, "rank " + k );
+    }
+    assertEquals( heap.getVisitedSum( walked ), direct.getVisitedSum( walked ) );
+    assertEquals( heap.getVisitedSum( walked / 2 ), direct.getVisitedSum( walked / 2 ) );
+  }
+
+  @Test
+  public void recordsMadeRoomForAheadOfTimeSpanEveryChunkUpToThem( ) {
+    SubsetRecords records = new SubsetRecords( 2 );
+    int perChunk = SubsetRecords.CHUNK_BYTES / 20;
+    // Room for one record, then for one two chunks on, which skips over the rest of the first
+    records.ensure( 3 );
+    int far = 2 * perChunk + 10;
+    records.ensure( far );
+    int[] ids = { 0, 3, 64, perChunk - 1, perChunk, perChunk + 1, 2 * perChunk, far };
+    for ( int id : ids ) {
+      records.put( id, new SubsetNode( new int[] { id, -id }, 3L * id, id % 5 ) );
+    }
+    for ( int id : ids ) {
+      SubsetNode node = records.get( id );
+      assertArrayEquals( new int[] { id, -id }, node.indices );
+      assertEquals( 3L * id, records.sum( id ) );
+      assertEquals( id % 5, records.limit( id ) );
+    }
+    // The first two chunks are whole, and the last only as large as the records it holds
+    assertTrue( records.bytes( ) >= 2L * perChunk * 20 + 11 * 20 );
+    assertTrue( records.bytes( ) < 3L * perChunk * 20 );
+  }
+
+  @Test
+  public void recordsRoundTripThroughTheirFile( ) throws IOException {
+    Path path = directory.resolve( "records.bin" );
+    SubsetNode[] nodes = new SubsetNode[1000];
+    for ( int i = 0; i < nodes.length; ++i ) {
+      nodes[i] = new SubsetNode( new int[] { i, i + 1, i + 7 }, i * 1000003L - 5, i % 3 );
+    }
+    try ( FileChannel file = FileChannel.open( path, StandardOpenOption.CREATE,
+                                               StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE ) ) {
+      SubsetRecords records = new SubsetRecords( 3, file );
+      for ( int i = 0; i < nodes.length; ++i ) {
+        records.ensure( i );
+        records.put( i, nodes[i] );
+      }
+      records.set( 17, -1, 2 );
+      records.force( nodes.length );
+    }
+    nodes[17] = new SubsetNode( nodes[17].indices, -1, 2 );
+    try ( FileChannel file = FileChannel.open( path, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE ) ) {
+      SubsetRecords records = new SubsetRecords( 3, file );
+      records.ensure( nodes.length - 1 );
+      for ( int i = 0; i < nodes.length; ++i ) {
+        SubsetNode node = records.get( i );
+        assertArrayEquals( nodes[i].indices, node.indices );
+        assertEquals( nodes[i].sum, node.sum );
+        assertEquals( nodes[i].sum, records.sum( i ) );
+        assertEquals( nodes[i].limit, node.limit );
+        assertEquals( nodes[i].limit, records.limit( i ) );
+      }
+    }
+  }
+
+}
@@ -0,0 +1,154 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FlatSubsetTreeTest {
+
+  // Sorted, with ties, so that many subsets share a sum
+  private static final long[] VALUES = { -9, -4, -4, -1, 0, 3, 3, 3, 7, 10, 12, 15, 22 };
+
+  @TempDir
+  Path directory;
+
+  /*
+   * Brute force: the index combinations of all the n-sized subsets of the values
+   */
+  private static List<int[]> combinations( int length, int n ) {
+    List<int[]> combinations = new ArrayList<int[]>( );
+    for ( long mask = 0; mask < 1L << length; ++mask ) {
+      if ( Long.bitCount( mask ) == n ) {
+        int[] indices = new int[n];
+        int count = 0;
+        for ( int i = 0; i < length; ++i ) {
+          if ( ( mask >>> i & 1 ) != 0 ) {
+            indices[count++] = i;
+          }
+        }
+        combinations.add( indices );
+      }
+    }
+    return combinations;
+  }
+
+  private static long sum( long[] values, int[] indices ) {
+    long sum = 0;
+    for ( int index : indices ) {
+      sum += values[index];
+    }
+    return sum;
+  }
+
+  /*
+   * Checks the tree against a brute-force enumeration and against the children a cursor
+   * generates, node by node
+   */
+  private static void assertMatchesBruteForce( FlatSubsetTree tree, int n ) {
+    List<int[]> combinations = combinations( VALUES.length, n );
+    assertEquals( combinations.size( ), tree.size );
+    boolean[] seen = new boolean[tree.size];
+    List<Long> sums = new ArrayList<Long>( );
+    for ( int[] indices : combinations ) {
+      int id = tree.rank( indices );
+      assertTrue( id >= 0 && id < tree.size && !seen[id], "id " + id );
+      seen[id] = true;
+      assertArrayEquals( indices, tree.indices( id ) );
+      assertEquals( sum( VALUES, indices ), tree.sum( id ) );
+      sums.add( tree.sum( id ) );
+    }
+    assertEquals( 0, tree.rank( SubsetCursor.buildTree( VALUES, n ).indices ) );
+
+    // Every node but the root is the child of exactly one node, as the cursor generates it
+    SubsetCursor cursor = new SubsetCursor( VALUES, SubsetCursor.buildTree( VALUES, n ) );
+    int[] parents = new int[tree.size];
+    for ( int id = 0; id < tree.size; ++id ) {
+      List<SubsetNode> children = cursor.buildChildren( tree.node( id ) );
+      assertEquals( children.size( ), tree.childCount( id ), "children of " + id );
+      for ( int i = 0; i < children.size( ); ++i ) {
+        int child = tree.child( id, i );
+        assertEquals( tree.rank( children.get( i ).indices ), child );
+        assertEquals( children.get( i ).sum, tree.sum( child ) );
+        assertEquals( children.get( i ).limit, tree.node( child ).limit );
+        ++parents[child];
+      }
+    }
+    assertEquals( 0, parents[0] );
+    for ( int id = 1; id < tree.size; ++id ) {
+      assertEquals( 1, parents[id], "parents of " + id );
+    }
+
+    Collections.sort( sums );
+    for ( int k = 1; k <= tree.size; ++k ) {
+      assertEquals( (long) sums.get( k - 1 ), tree.sum( tree.findKthMin( k ) ), "rank " + k );
+    }
+    assertEquals( -1, tree.findKthMin( 0 ) );
+    assertEquals( -1, tree.findKthMin( tree.size + 1 ) );
+  }
+
+  @Test
+  public void builtTreeMatchesBruteForce( ) {
+    for ( int n = 1; n <= VALUES.length; ++n ) {
+      assertMatchesBruteForce( FlatSubsetTree.build( VALUES, n ), n );
+    }
+  }
+
+  @Test
+  public void savedTreeOpensToTheSameTree( ) throws IOException {
+    for ( int n : new int[] { 1, 5, 13 } ) {
+      FlatSubsetTree built = FlatSubsetTree.build( VALUES, n );
+      Path file = directory.resolve( "tree-" + n + ".bin" );
+      built.save( file );
+      FlatSubsetTree opened = FlatSubsetTree.open( file );
+      assertArrayEquals( VALUES, opened.values );
+      assertEquals( built.order, opened.order );
+      assertEquals( built.size, opened.size );
+      for ( int id = 0; id < built.size; ++id ) {
+        assertEquals( built.sum( id ), opened.sum( id ) );
+        assertEquals( built.node( id ).limit, opened.node( id ).limit );
+        assertEquals( built.childCount( id ), opened.childCount( id ) );
+        for ( int i = 0; i < built.childCount( id ); ++i ) {
+          assertEquals( built.child( id, i ), opened.child( id, i ) );
+        }
+      }
+      assertMatchesBruteForce( opened, n );
+    }
+  }
+
+  @Test
+  public void fileThatIsNotATreeIsRejected( ) throws IOException {
+    Path file = directory.resolve( "other.bin" );
+    Files.write( file, new byte[64] );
+    assertThrows( IllegalArgumentException.class, ( ) -> FlatSubsetTree.open( file ) );
+  }
+
+  @Test
+  public void truncatedTreeIsRejected( ) throws IOException {
+    Path file = directory.resolve( "tree.bin" );
+    FlatSubsetTree.build( VALUES, 5 ).save( file );
+    byte[] bytes = Files.readAllBytes( file );
+    Files.write( file, Arrays.copyOf( bytes, bytes.length - 4 ) );
+    assertThrows( IOException.class, ( ) -> FlatSubsetTree.open( file ) );
+  }
+
+  @Test
+  public void treeTooLargeToLayOutFlatIsRejected( ) {
+    long[] values = new long[40];
+    for ( int i = 0; i < values.length; ++i ) {
+      values[i] = i;
+    }
+    assertThrows( IllegalArgumentException.class, ( ) -> FlatSubsetTree.build( values, 20 ) );
+    assertThrows( IllegalArgumentException.class, ( ) -> FlatSubsetTree.build( VALUES, 0 ) );
+  }
+
+}
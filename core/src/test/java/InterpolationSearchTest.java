@@ -0,0 +1,197 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class InterpolationSearchTest {
+
+  /*
+   * Brute force: the sorted sums of all the n-sized subsets of the values
+   */
+  private static long[] subsetSums( long[] values, int n ) {
+    long[] sums = new long[1 << values.length];
+    int count = 0;
+    for ( long mask = 0; mask < 1L << values.length; ++mask ) {
+      if ( Long.bitCount( mask ) == n ) {
+        long sum = 0;
+        for ( int i = 0; i < values.length; ++i ) {
+          if ( ( mask >>> i & 1 ) != 0 ) {
+            sum += values[i];
+          }
+        }
+        sums[count++] = sum;
+      }
+    }
+    sums = Arrays.copyOf( sums, count );
+    Arrays.sort( sums );
+    return sums;
+  }
+
+  private static long sum( long[] values, SubsetNode node ) {
+    long sum = 0;
+    for ( int index : node.indices ) {
+      sum += values[index];
+    }
+    return sum;
+  }
+
+  /*
+   * A search of positive sorted values, which are searched as they are, unscaled
+   */
+  private static SubsetSum search( long[] values, SearchMode mode ) {
+    SubsetSum search = new SubsetSum( new ScaledInput( values ) );
+    search.mode = mode;
+    return search;
+  }
+
+  private static SubsetCursor cursor( long[] values, int n ) {
+    return new SubsetCursor( values, SubsetCursor.buildTree( values, n ) );
+  }
+
+  /*
+   * Searches up to about 200 of the n-sized sums and the targets either side of each, below the
+   * least sum and above the greatest, with fresh cursors, by interpolation and by bisection, and
+   * checks both against the sums
+   */
+  private static void assertAgreesWithBinary( long[] values, int n ) {
+    long[] sums = subsetSums( values, n );
+    SubsetSum interpolation = search( values, SearchMode.INTERPOLATION );
+    SubsetSum binary = search( values, SearchMode.BINARY );
+    long size = interpolation.treeSize( n );
+    assertEquals( sums.length, size );
+    int stride = Math.max( 1, sums.length / 200 );
+    long[] targets = { sums[0] - 100, sums[0] - 1, sums[sums.length - 1] + 1,
+                       sums[sums.length - 1] + 100 };
+    for ( int i = 0; i < sums.length; i += stride ) {
+      targets = Arrays.copyOf( targets, targets.length + 3 );
+      targets[targets.length - 3] = sums[i] - 1;
+      targets[targets.length - 2] = sums[i];
+      targets[targets.length - 1] = sums[i] + 1;
+    }
+    for ( long target : targets ) {
+      boolean expected = Arrays.binarySearch( sums, target ) >= 0;
+      SubsetNode found = interpolation.interpolationSearch( cursor( values, n ), size, target );
+      SubsetNode bisected = binary.searchHeap( cursor( values, n ), target );
+      String message = Arrays.toString( values ) + " order " + n + " target " + target;
+      assertEquals( expected, found != null, message );
+      assertEquals( expected, bisected != null, message );
+      if ( expected ) {
+        assertEquals( target, sum( values, found ), message );
+        assertEquals( target, found.sum, message );
+      }
+    }
+  }
+
+  @Test
+  public void interpolationAgreesWithBinaryOnRandomInputs( ) {
+    Random random = new Random( 16 );
+    for ( int trial = 0; trial < 30; ++trial ) {
+      long[] values = new long[6 + random.nextInt( 7 )];
+      for ( int i = 0; i < values.length; ++i ) {
+        values[i] = 1 + random.nextInt( 60 );
+      }
+      Arrays.sort( values );
+      for ( int n = 1; n <= values.length; ++n ) {
+        assertAgreesWithBinary( values, n );
+      }
+    }
+  }
+
+  @Test
+  public void interpolationOfASkewedInputFallsBackToGalloping( ) {
+    // The normal model puts nearly every sum at the mean, far from where most of them lie
+    long[] values = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 1000000, 2000000 };
+    for ( int n : new int[] { 2, 5, 8 } ) {
+      assertAgreesWithBinary( values, n );
+    }
+    // Galloping costs no more than a bisection that walks the same ranks, about twice its probes
+    SubsetSum search = search( values, SearchMode.INTERPOLATION );
+    long size = search.treeSize( 8 );
+    long[] sums = subsetSums( values, 8 );
+    for ( int k = 1; k <= sums.length; k += 31 ) {
+      SubsetCursor cursor = cursor( values, 8 );
+      assertNotNull( search.interpolationSearch( cursor, size, sums[k - 1] ) );
+      assertTrue( cursor.probes <= 2 * ( 64 - Long.numberOfLeadingZeros( size ) ),
+                  "rank " + k + " took " + cursor.probes + " probes" );
+    }
+  }
+
+  @Test
+  public void interpolationOfConstantValuesHasNoDeviation( ) {
+    long[] values = new long[10];
+    Arrays.fill( values, 5 );
+    assertAgreesWithBinary( values, 1 );
+    assertAgreesWithBinary( values, 4 );
+    assertAgreesWithBinary( values, 10 );
+    // A single value, whose one subset has no deviation either
+    assertAgreesWithBinary( new long[] { 7 }, 1 );
+    // A target at, below and above the one sum of the whole tree, as the search plans it
+    SubsetSum search = search( values, SearchMode.INTERPOLATION );
+    assertNotNull( search.searchOrder( 4, 20 ) );
+    assertNull( search.searchOrder( 4, 19 ) );
+    assertNull( search.searchOrder( 4, 21 ) );
+  }
+
+  @Test
+  public void interpolationResumesAboveTheVisitedSubsets( ) {
+    Random random = new Random( 160 );
+    for ( int trial = 0; trial < 20; ++trial ) {
+      long[] values = new long[12];
+      for ( int i = 0; i < values.length; ++i ) {
+        values[i] = 1 + random.nextInt( 100 );
+      }
+      Arrays.sort( values );
+      int n = 3 + random.nextInt( 6 );
+      long[] sums = subsetSums( values, n );
+      SubsetSum search = search( values, SearchMode.INTERPOLATION );
+      long size = search.treeSize( n );
+      // One cursor for the targets in increasing order, so each search starts with lower > 0
+      SubsetCursor cursor = cursor( values, n );
+      for ( long target = sums[0]; target <= sums[sums.length - 1] + 1; target += 3 ) {
+        boolean expected = Arrays.binarySearch( sums, target ) >= 0;
+        int position = cursor.getPosition( );
+        SubsetNode found;
+        if ( position > 0 && cursor.getVisitedSum( position ) >= target ) {
+          found = search.searchHeap( cursor, target );
+        }
+        else {
+          found = search.interpolationSearch( cursor, size, target );
+        }
+        assertEquals( expected, found != null, "target " + target );
+        if ( found != null ) {
+          assertEquals( target, sum( values, found ) );
+        }
+        assertTrue( cursor.getPosition( ) >= position );
+      }
+      assertTrue( cursor.getPosition( ) > 0 );
+    }
+  }
+
+  @Test
+  public void interpolationFromAWalkedCursorFindsWhatAFreshOneDoes( ) {
+    long[] values = { 3, 8, 9, 14, 20, 22, 23, 31, 40, 41, 55, 60, 71 };
+    int n = 6;
+    long[] sums = subsetSums( values, n );
+    SubsetSum search = search( values, SearchMode.INTERPOLATION );
+    long size = search.treeSize( n );
+    for ( int walked : new int[] { 1, 10, 200, 1000 } ) {
+      for ( long target = sums[walked - 1] + 1; target <= sums[sums.length - 1] + 2; target += 5 ) {
+        SubsetCursor cursor = cursor( values, n );
+        cursor.findKthMin( walked );
+        if ( cursor.getVisitedSum( walked ) >= target ) {
+          continue;
+        }
+        SubsetNode resumed = search.interpolationSearch( cursor, size, target );
+        SubsetNode fresh = search.interpolationSearch( cursor( values, n ), size, target );
+        assertEquals( fresh != null, resumed != null, "walked " + walked + " target " + target );
+        assertEquals( Arrays.binarySearch( sums, target ) >= 0, resumed != null );
+      }
+    }
+  }
+
+}
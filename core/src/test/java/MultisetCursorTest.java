@@ -0,0 +1,149 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class MultisetCursorTest {
+
+  /*
+   * Brute force: the distinct n-sized multisets of the sorted values, each as its sorted elements,
+   * with their sums
+   */
+  private static Map<String, Long> multisets( long[] values, int n ) {
+    Map<String, Long> multisets = new HashMap<String, Long>( );
+    for ( long mask = 0; mask < 1L << values.length; ++mask ) {
+      if ( Long.bitCount( mask ) == n ) {
+        long[] elements = new long[n];
+        int j = 0;
+        long sum = 0;
+        for ( int i = 0; i < values.length; ++i ) {
+          if ( ( mask >>> i & 1 ) != 0 ) {
+            elements[j++] = values[i];
+            sum += values[i];
+          }
+        }
+        multisets.put( Arrays.toString( elements ), sum );
+      }
+    }
+    return multisets;
+  }
+
+  private static List<SubsetNode> walk( SubsetCursor cursor ) {
+    List<SubsetNode> nodes = new ArrayList<SubsetNode>( );
+    while ( cursor.hasNext( ) ) {
+      nodes.add( cursor.next( ) );
+    }
+    return nodes;
+  }
+
+  /*
+   * Checks that the cursor visits every distinct n-sized multiset once, in order of sum, each as
+   * the first elements of the runs it takes from
+   */
+  private static void assertVisitsEachMultisetOnce( long[] values, int n ) {
+    String message = Arrays.toString( values ) + " order " + n;
+    MultisetCursor cursor = new MultisetCursor( values, n );
+    List<SubsetNode> nodes = walk( cursor );
+    Set<String> expected = multisets( values, n ).keySet( );
+    Set<String> visited = new HashSet<String>( );
+    long previous = Long.MIN_VALUE;
+    for ( SubsetNode node : nodes ) {
+      long[] data = node.getData( values );
+      assertTrue( visited.add( Arrays.toString( data ) ), message + " twice " + node );
+      assertTrue( node.sum >= previous, message + " out of order at " + node );
+      assertEquals( Arrays.stream( data ).sum( ), node.sum, message );
+      previous = node.sum;
+      for ( int i = 0; i < n; ++i ) {
+        int run = cursor.runOf[node.indices[i]];
+        boolean first = i == 0 || cursor.runOf[node.indices[i - 1]] != run;
+        assertEquals( first ? cursor.runStart[run] : node.indices[i - 1] + 1, node.indices[i],
+                      message + " not canonical " + node );
+      }
+    }
+    assertEquals( expected, visited, message );
+    assertEquals( expected.size( ), MultisetCursor.countMultisets( values )[n], message );
+  }
+
+  @Test
+  public void eachMultisetIsVisitedOnceInOrder( ) {
+    Random random = new Random( 14 );
+    for ( int trial = 0; trial < 25; ++trial ) {
+      long[] values = new long[4 + random.nextInt( 9 )];
+      for ( int i = 0; i < values.length; ++i ) {
+        values[i] = random.nextInt( 6 ) - 2;
+      }
+      Arrays.sort( values );
+      for ( int n = 1; n <= values.length; ++n ) {
+        assertVisitsEachMultisetOnce( values, n );
+      }
+    }
+  }
+
+  @Test
+  public void repeatedValuesOnlyGiveOneMultisetEach( ) {
+    long[] same = new long[8];
+    Arrays.fill( same, 3 );
+    for ( int n = 1; n <= same.length; ++n ) {
+      List<SubsetNode> nodes = walk( new MultisetCursor( same, n ) );
+      assertEquals( 1, nodes.size( ) );
+      assertEquals( 3L * n, nodes.get( 0 ).sum );
+      assertVisitsEachMultisetOnce( same, n );
+    }
+    long[] values = { -5, -5, -5, 0, 0, 7, 7, 7, 7, 9 };
+    for ( int n = 1; n <= values.length; ++n ) {
+      assertVisitsEachMultisetOnce( values, n );
+    }
+  }
+
+  @Test
+  public void distinctValuesWalkAsThePlainCursorDoes( ) {
+    Random random = new Random( 140 );
+    for ( int trial = 0; trial < 15; ++trial ) {
+      long[] values = random.longs( 4 + random.nextInt( 8 ), -50, 50 ).distinct( ).sorted( )
+                            .toArray( );
+      for ( int n = 1; n <= values.length; ++n ) {
+        List<SubsetNode> multisets = walk( new MultisetCursor( values, n ) );
+        List<SubsetNode> subsets =
+            walk( new SubsetCursor( values, SubsetCursor.buildTree( values, n ) ) );
+        assertEquals( subsets.size( ), multisets.size( ) );
+        Set<String> expected = new HashSet<String>( );
+        Set<String> visited = new HashSet<String>( );
+        for ( int i = 0; i < subsets.size( ); ++i ) {
+          // Subsets of equal sums may come out in either order
+          assertEquals( subsets.get( i ).sum, multisets.get( i ).sum, "rank " + ( i + 1 ) );
+          expected.add( Arrays.toString( subsets.get( i ).indices ) );
+          visited.add( Arrays.toString( multisets.get( i ).indices ) );
+        }
+        assertEquals( expected, visited );
+      }
+    }
+  }
+
+  @Test
+  public void kthMinimumMatchesTheSortedMultisetSums( ) {
+    long[] values = { 1, 1, 2, 4, 4, 4, 6, 9, 9 };
+    for ( int n = 1; n <= values.length; ++n ) {
+      long[] sums = multisets( values, n ).values( ).stream( ).mapToLong( Long::longValue )
+                                          .sorted( ).toArray( );
+      MultisetCursor cursor = new MultisetCursor( values, n );
+      long[] found = new long[sums.length];
+      for ( int k = sums.length; k >= 1; --k ) {
+        found[k - 1] = cursor.findKthMin( k ).sum;
+      }
+      assertArrayEquals( sums, found, "order " + n );
+      assertNull( cursor.findKthMin( sums.length + 1 ) );
+    }
+  }
+
+}
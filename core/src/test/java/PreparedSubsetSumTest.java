@@ -0,0 +1,39 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class PreparedSubsetSumTest {
+
+  @Test
+  public void changesToTheInputDoNotReachThePreparedSet( ) {
+    ScaledInput input = new ScaledInput( new long[] { 9, -4, 6, 1, -2, 13 } );
+    PreparedSubsetSum prepared = new SubsetTreeSolver( ).prepare( input );
+    Arrays.fill( input.values, 100 );
+    Arrays.fill( input.scaled, 100 );
+    input.offset = 0;
+    assertArrayEquals( new long[] { -4, -2, 1, 6, 9, 13 }, prepared.getValues( ) );
+    assertEquals( -6, prepared.getLowestSum( ) );
+    assertEquals( 29, prepared.getHighestSum( ) );
+    SubsetSumResult result = prepared.solve( 3 );
+    assertNotNull( result );
+    assertEquals( 3, result.sum );
+    assertNull( prepared.solve( 200 ) );
+  }
+
+  @Test
+  public void changesToItsValuesDoNotReachThePreparedSet( ) {
+    PreparedSubsetSum prepared = new SubsetTreeSolver( ).prepare(
+        new ScaledInput( new long[] { 9, -4, 6, 1, -2, 13 } ) );
+    Arrays.fill( prepared.getValues( ), 0 );
+    assertArrayEquals( new long[] { -4, -2, 1, 6, 9, 13 }, prepared.getValues( ) );
+    SubsetSumResult result = prepared.solve( 28 );
+    assertNotNull( result );
+    assertArrayEquals( new long[] { 6, 9, 13 }, result.values );
+  }
+
+}
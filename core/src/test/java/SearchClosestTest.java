@@ -0,0 +1,204 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class SearchClosestTest {
+
+  private static long[] randomValues( Random random, int size ) {
+    long[] values = new long[size];
+    for ( int i = 0; i < size; ++i ) {
+      values[i] = random.nextInt( 200 ) - 60;
+    }
+    Arrays.sort( values );
+    return values;
+  }
+
+  /*
+   * Brute force: the sums of all the non-empty subsets of the sorted values
+   */
+  private static long[] subsetSums( long[] values ) {
+    long[] sums = new long[( 1 << values.length ) - 1];
+    for ( int mask = 1; mask < 1 << values.length; ++mask ) {
+      long sum = 0;
+      for ( int i = 0; i < values.length; ++i ) {
+        if ( ( mask >>> i & 1 ) != 0 ) {
+          sum += values[i];
+        }
+      }
+      sums[mask - 1] = sum;
+    }
+    return sums;
+  }
+
+  private static long[] sorted( long[] sums ) {
+    long[] sorted = sums.clone( );
+    Arrays.sort( sorted );
+    return sorted;
+  }
+
+  private static long nearest( long[] sums, long target ) {
+    long nearest = Long.MAX_VALUE;
+    for ( long sum : sums ) {
+      nearest = Math.min( nearest, Math.abs( sum - target ) );
+    }
+    return nearest;
+  }
+
+  /*
+   * The distance from the target of the subset found, which must be a subset of the values
+   */
+  private static long distance( long[] values, SubsetNode node, long target ) {
+    Set<Integer> indices = new HashSet<Integer>( );
+    long sum = 0;
+    for ( int index : node.indices ) {
+      assertTrue( index >= 0 && index < values.length && indices.add( index ), node.toString( ) );
+      sum += values[index];
+    }
+    assertFalse( indices.isEmpty( ) );
+    return Math.abs( sum - target );
+  }
+
+  private static SubsetSum search( long[] values, boolean dualEnded ) {
+    SubsetSum search = new SubsetSum( new ScaledInput( values ) );
+    search.dualEnded = dualEnded;
+    return search;
+  }
+
+  @Test
+  public void closestSumMatchesBruteForce( ) {
+    Random random = new Random( 18 );
+    for ( int trial = 0; trial < 15; ++trial ) {
+      long[] values = randomValues( random, 3 + random.nextInt( 9 ) );
+      long[] sums = subsetSums( values );
+      long least = Arrays.stream( sums ).min( ).getAsLong( );
+      long greatest = Arrays.stream( sums ).max( ).getAsLong( );
+      for ( boolean dualEnded : new boolean[] { false, true } ) {
+        for ( long target = least - 30; target <= greatest + 30; target += 7 ) {
+          SearchBudget budget = SearchBudget.unlimited( );
+          SubsetNode node = search( values, dualEnded ).searchClosest( target, budget );
+          assertEquals( nearest( sums, target ), distance( values, node, target ),
+                        Arrays.toString( values ) + " target " + target );
+          assertFalse( budget.isExhausted( ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void tiesAreSettledByEitherNearestSum( ) {
+    // Every sum is even, so each odd target lies exactly between two of them, or beyond them all
+    long[] values = { -8, -2, 4, 6, 10, 14 };
+    long[] sums = subsetSums( values );
+    for ( long target = -13; target <= 35; target += 2 ) {
+      SubsetNode node = search( values, true ).searchClosest( target, SearchBudget.unlimited( ) );
+      long distance = distance( values, node, target );
+      assertEquals( nearest( sums, target ), distance, "target " + target );
+      assertTrue( Arrays.binarySearch( sorted( sums ), target - distance ) >= 0
+                  || Arrays.binarySearch( sorted( sums ), target + distance ) >= 0 );
+    }
+    // A target exactly between the one sum below it and the one above it
+    long[] pair = { 10, 20 };
+    SubsetNode node = search( pair, true ).searchClosest( 15, SearchBudget.unlimited( ) );
+    assertEquals( 5, distance( pair, node, 15 ) );
+    assertEquals( 1, node.indices.length );
+  }
+
+  /*
+   * The nearest to the target of the sums of the n smallest and the n largest values, for each
+   * n, which a search answers before it visits anything
+   */
+  private static long nearestOfTheEnds( long[] values, long target ) {
+    long nearest = Long.MAX_VALUE;
+    long smallest = 0;
+    long largest = 0;
+    for ( int n = 1; n <= values.length; ++n ) {
+      smallest += values[n - 1];
+      largest += values[values.length - n];
+      nearest = Math.min( nearest, Math.min( Math.abs( smallest - target ),
+                                             Math.abs( largest - target ) ) );
+    }
+    return nearest;
+  }
+
+  @Test
+  public void exhaustedBudgetReturnsTheBestSoFar( ) {
+    Random random = new Random( 180 );
+    for ( int trial = 0; trial < 10; ++trial ) {
+      long[] values = randomValues( random, 8 + random.nextInt( 5 ) );
+      long[] sums = subsetSums( values );
+      for ( int t = 0; t < 6; ++t ) {
+        long target = sums[random.nextInt( sums.length )] + random.nextInt( 5 ) - 2;
+        String message = Arrays.toString( values ) + " target " + target;
+        // With nothing to spend, the answer is the nearest of the sums at the ends of the trees
+        SearchBudget none = SearchBudget.ofNodes( 0 );
+        SubsetNode first = search( values, true ).searchClosest( target, none );
+        long distance = distance( values, first, target );
+        assertEquals( nearestOfTheEnds( values, target ), distance, message );
+        assertTrue( none.isExhausted( ) || distance == 0, message );
+        // Each subset more that is visited can only bring the answer nearer
+        long previous = distance;
+        for ( long nodes = 1; nodes <= 1 << 12; nodes *= 2 ) {
+          SearchBudget budget = SearchBudget.ofNodes( nodes );
+          SubsetNode node = search( values, true ).searchClosest( target, budget );
+          distance = distance( values, node, target );
+          assertTrue( distance <= previous, message + " nodes " + nodes );
+          assertTrue( distance >= nearest( sums, target ), message );
+          if ( !budget.isExhausted( ) ) {
+            assertEquals( nearest( sums, target ), distance, message + " nodes " + nodes );
+          }
+          previous = distance;
+        }
+      }
+    }
+  }
+
+  @Test
+  public void budgetThatHasRunOutVisitsNothing( ) {
+    long[] values = { -7, -3, 2, 5, 11, 12, 19, 26, 30 };
+    long target = 23;
+    long nearest = nearestOfTheEnds( values, target );
+    assertTrue( nearest > 0 );
+    // A deadline that has already passed
+    SearchBudget timed = SearchBudget.ofMillis( 0 );
+    SubsetNode node = search( values, true ).searchClosest( target, timed );
+    assertEquals( nearest, distance( values, node, target ) );
+    assertTrue( timed.isExhausted( ) );
+    // A budget used up by an earlier search
+    SearchBudget budget = SearchBudget.ofNodes( 3 );
+    search( values, true ).searchClosest( target, budget );
+    assertTrue( budget.isExhausted( ) );
+    node = search( values, true ).searchClosest( target, budget );
+    assertEquals( nearest, distance( values, node, target ) );
+    assertEquals( 0, budget.nodes );
+    // A budget of nodes that is not spent in full
+    budget = SearchBudget.ofNodes( 1 << 20 );
+    node = search( values, true ).searchClosest( target, budget );
+    assertEquals( 0, distance( values, node, target ) );
+    assertFalse( budget.isExhausted( ) );
+    assertTrue( budget.nodes > 0 );
+  }
+
+  @Test
+  public void solversReturnTheClosestSubsetAsAResult( ) {
+    long[] values = { 40, -13, 7, 22, -5, 31, 16 };
+    long[] sums = subsetSums( sorted( values ) );
+    SubsetTreeSolver solver = new SubsetTreeSolver( );
+    ScaledInput input = new ScaledInput( values );
+    PreparedSubsetSum prepared = solver.prepare( input );
+    for ( long target = -40; target <= 150; target += 11 ) {
+      SubsetSumResult result = solver.solveClosest( input, target, SearchBudget.unlimited( ) );
+      assertEquals( nearest( sums, target ), Math.abs( result.sum - target ), "target " + target );
+      assertEquals( Arrays.stream( result.values ).sum( ), result.sum );
+      SubsetSumResult same = prepared.solveClosest( target, SearchBudget.unlimited( ) );
+      assertEquals( nearest( sums, target ), Math.abs( same.sum - target ), "target " + target );
+    }
+  }
+
+}
@@ -0,0 +1,164 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SearchStatisticsTest {
+
+  private static final long[] VALUES = { -6, -2, 1, 3, 4, 8, 9, 13, 15, 20, 26, 31 };
+
+  /*
+   * Statistics that also keep every call made to them
+   */
+  private static class Recorder extends SearchStatistics {
+
+    List<long[]> probeCalls = new ArrayList<long[]>( );
+    List<Object[]> ends = new ArrayList<Object[]>( );
+
+    public void probed( int order, long rank, long popped, long generated, long skipped,
+                        int frontierPeak ) {
+      probeCalls.add( new long[] { order, rank, popped, generated, skipped, frontierPeak } );
+      super.probed( order, rank, popped, generated, skipped, frontierPeak );
+    }
+
+    public void orderSearched( int order, HeapEnd end, long probes, long popped, long nanos,
+                               boolean found ) {
+      ends.add( new Object[] { order, end, probes, popped, nanos, found } );
+      super.orderSearched( order, end, probes, popped, nanos, found );
+    }
+
+  }
+
+  /*
+   * Checks that the statistics add up to the work done by the cached cursors of the search, which
+   * are walked only from the bottom
+   */
+  private static void assertTotalTheCursors( SubsetSum search, SearchStatistics statistics ) {
+    long probes = 0;
+    long popped = 0;
+    long generated = 0;
+    long skipped = 0;
+    long frontierPeak = 0;
+    for ( int n = 1; n <= search.scaledValues.length; ++n ) {
+      SubsetCursor cursor = search.cache.get( search.scaledValues, n );
+      probes += cursor.probes;
+      popped += cursor.popped;
+      generated += cursor.generated;
+      skipped += cursor.skipped;
+      frontierPeak = Math.max( frontierPeak, cursor.frontierPeak );
+    }
+    assertEquals( probes, statistics.probes.sum( ) );
+    assertEquals( popped, statistics.popped.sum( ) );
+    assertEquals( generated, statistics.generated.sum( ) );
+    assertEquals( skipped, statistics.skipped.sum( ) );
+    assertEquals( frontierPeak, statistics.frontierPeak.get( ) );
+  }
+
+  @Test
+  public void statisticsAddUpTheWorkOfEachSearch( ) {
+    for ( SearchMode mode : SearchMode.values( ) ) {
+      SubsetSum search = new SubsetSum( new ScaledInput( VALUES ) );
+      search.mode = mode;
+      search.dualEnded = false;
+      search.cache = new SubsetRankCache( 64L << 20 );
+      Recorder recorder = new Recorder( );
+      search.listener = recorder;
+      int searches = 0;
+      int found = 0;
+      for ( long target = -10; target <= 150; target += 17 ) {
+        int before = recorder.ends.size( );
+        SubsetNode node = search.search( target );
+        String message = mode + " target " + target;
+        // Each order planned is searched in turn, up to the one where the subset is found
+        int[] orders = search.planOrders( target );
+        List<Object[]> reported = recorder.ends.subList( before, recorder.ends.size( ) );
+        assertTrue( reported.size( ) <= orders.length, message );
+        for ( int i = 0; i < reported.size( ); ++i ) {
+          Object[] report = reported.get( i );
+          assertEquals( orders[i], report[0], message );
+          assertEquals( HeapEnd.MIN, report[1], message );
+          assertEquals( i == reported.size( ) - 1 && node != null, report[5], message );
+          assertTrue( (Long) report[2] > 0, message + " searched without probing" );
+        }
+        assertEquals( node == null ? orders.length : reported.size( ), reported.size( ), message );
+        searches += reported.size( );
+        found += node == null ? 0 : 1;
+        assertTotalTheCursors( search, recorder );
+      }
+      assertTrue( found > 0 && found < searches, mode.toString( ) );
+      assertEquals( searches, recorder.orders.sum( ) );
+      assertEquals( recorder.probeCalls.size( ), recorder.probes.sum( ) );
+      long perOrder = 0;
+      long foundPerOrder = 0;
+      for ( SearchStatistics.Order order : recorder.byOrder.values( ) ) {
+        perOrder += order.searches.sum( );
+        foundPerOrder += order.found.sum( );
+      }
+      assertEquals( searches, perOrder );
+      assertEquals( found, foundPerOrder );
+      // Every probe of an order adds up to what the search of the order reported
+      long probed = 0;
+      long popped = 0;
+      for ( Object[] report : recorder.ends ) {
+        probed += (Long) report[2];
+        popped += (Long) report[3];
+      }
+      assertEquals( recorder.probes.sum( ), probed, mode.toString( ) );
+      assertEquals( recorder.popped.sum( ), popped, mode.toString( ) );
+    }
+  }
+
+  @Test
+  public void searchOfTheWholeSetReportsOneOrder( ) {
+    long[] values = { 1, 2, 3, 4, 5, 6 };
+    SubsetSum search = new SubsetSum( new ScaledInput( values ) );
+    Recorder recorder = new Recorder( );
+    search.listener = recorder;
+    // Only the 6-sized subsets reach 21, and only the whole set is among them
+    assertNotNull( search.search( 21 ) );
+    assertEquals( 1, recorder.ends.size( ) );
+    assertEquals( Arrays.asList( 6, HeapEnd.MIN, 1L ),
+                  Arrays.asList( recorder.ends.get( 0 ) ).subList( 0, 3 ) );
+    assertEquals( 1, recorder.probeCalls.size( ) );
+    assertEquals( 6, recorder.probeCalls.get( 0 )[0] );
+    assertEquals( 1, recorder.popped.sum( ) );
+    assertEquals( 0, recorder.generated.sum( ) );
+    assertTrue( recorder.toString( ).startsWith( "probes=1 popped=1 generated=0 skipped=0 " ) );
+    long millis = recorder.byOrder.get( 6 ).nanos.sum( ) / 1000000;
+    assertTrue( recorder.toString( ).endsWith( "\n  n=6 searches=1 found=1 probes=1 popped=1 ms="
+                                               + millis ) );
+    // A target beyond every order is not searched at all
+    assertNull( search.search( 22 ) );
+    assertEquals( 1, recorder.ends.size( ) );
+    assertEquals( 1, recorder.probeCalls.size( ) );
+  }
+
+  @Test
+  public void solverReportsToItsListener( ) {
+    SubsetTreeSolver solver = new SubsetTreeSolver( );
+    SearchStatistics statistics = new SearchStatistics( );
+    solver.listener = statistics;
+    // No subset sums to 17, which lies in the range of the 1-sized and 2-sized subsets, so both
+    // are searched for it
+    ScaledInput input = new ScaledInput( new long[] { 5, 11, 13, 20, 24 } );
+    assertNull( solver.solve( input, 17 ) );
+    int[] orders = new SubsetSum( input ).planOrders( 17 );
+    assertEquals( "[1, 2]", Arrays.toString( orders ) );
+    assertEquals( orders.length, statistics.orders.sum( ) );
+    for ( int n : orders ) {
+      assertEquals( 1, statistics.byOrder.get( n ).searches.sum( ) );
+      assertEquals( 0, statistics.byOrder.get( n ).found.sum( ) );
+    }
+    assertTrue( statistics.probes.sum( ) >= orders.length );
+    assertNotNull( solver.solve( input, 16 ) );
+    assertEquals( 1, statistics.byOrder.values( ).stream( ).mapToLong( o -> o.found.sum( ) )
+                                       .sum( ) );
+  }
+
+}
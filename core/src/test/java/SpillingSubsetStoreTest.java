@@ -0,0 +1,343 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SpillingSubsetStoreTest {
+
+  // Sorted, with ties, so that many subsets share a sum
+  private static final long[] VALUES = { -7, -3, -3, 0, 1, 2, 2, 5, 8, 8, 9, 13, 20, 21 };
+  private static final int ORDER = 6;
+
+  @TempDir
+  Path directory;
+
+  /*
+   * Brute force: the sums of all the n-sized subsets of the values, smallest first
+   */
+  private static List<Long> subsetSums( long[] values, int n ) {
+    List<Long> sums = new ArrayList<Long>( );
+    for ( long mask = 0; mask < 1L << values.length; ++mask ) {
+      if ( Long.bitCount( mask ) == n ) {
+        long sum = 0;
+        for ( int i = 0; i < values.length; ++i ) {
+          if ( ( mask >>> i & 1 ) != 0 ) {
+            sum += values[i];
+          }
+        }
+        sums.add( sum );
+      }
+    }
+    Collections.sort( sums );
+    return sums;
+  }
+
+  /*
+   * Brute force: the distinct n-sized multisets of the values, as their sorted elements
+   */
+  private static Set<String> multisets( long[] values, int n ) {
+    Set<String> multisets = new HashSet<String>( );
+    for ( long mask = 0; mask < 1L << values.length; ++mask ) {
+      if ( Long.bitCount( mask ) == n ) {
+        long[] elements = new long[n];
+        int count = 0;
+        for ( int i = 0; i < values.length; ++i ) {
+          if ( ( mask >>> i & 1 ) != 0 ) {
+            elements[count++] = values[i];
+          }
+        }
+        multisets.add( Arrays.toString( elements ) );
+      }
+    }
+    return multisets;
+  }
+
+  private static SubsetCursor cursor( SubsetStore store, boolean multiset ) {
+    return multiset ? new MultisetCursor( VALUES, ORDER, store )
+                    : new SubsetCursor( VALUES, SubsetCursor.buildTree( VALUES, ORDER ), store );
+  }
+
+  private SpillingSubsetStore open( boolean multiset, long checkpointInterval ) {
+    return new SpillingSubsetStore( directory, VALUES, ORDER, multiset, 8, checkpointInterval );
+  }
+
+  private static List<Long> sums( SubsetCursor cursor ) {
+    List<Long> sums = new ArrayList<Long>( );
+    for ( int rank = 1; rank <= cursor.getPosition( ); ++rank ) {
+      sums.add( cursor.getVisitedSum( rank ) );
+    }
+    return sums;
+  }
+
+  private static Set<String> subsets( SubsetCursor cursor ) {
+    Set<String> subsets = new HashSet<String>( );
+    for ( int rank = 1; rank <= cursor.getPosition( ); ++rank ) {
+      assertTrue( subsets.add( Arrays.toString( cursor.getVisited( rank ).indices ) ),
+                  "rank " + rank + " visited twice" );
+    }
+    return subsets;
+  }
+
+  private static long sum( int[] indices ) {
+    long sum = 0;
+    for ( int index : indices ) {
+      sum += VALUES[index];
+    }
+    return sum;
+  }
+
+  private static void walk( SubsetCursor cursor, int steps ) {
+    for ( int i = 0; i < steps && cursor.hasNext( ); ++i ) {
+      cursor.next( );
+    }
+  }
+
+  private static void walkToEnd( SubsetCursor cursor ) {
+    while ( cursor.hasNext( ) ) {
+      cursor.next( );
+    }
+  }
+
+  @Test
+  public void walkThroughSpilledRunsVisitsEverySubsetInOrder( ) {
+    SpillingSubsetStore store = open( false, 0 );
+    SubsetCursor cursor = cursor( store, false );
+    walkToEnd( cursor );
+    assertEquals( subsetSums( VALUES, ORDER ), sums( cursor ) );
+    // Every subset is visited once, and only the n-sized subsets are visited
+    assertEquals( 3003, subsets( cursor ).size( ) );
+    SubsetCursor memory = new SubsetCursor( VALUES, SubsetCursor.buildTree( VALUES, ORDER ) );
+    walkToEnd( memory );
+    assertEquals( subsets( memory ), subsets( cursor ) );
+    store.delete( );
+  }
+
+  @Test
+  public void multisetWalkThroughSpilledRunsVisitsEveryMultisetOnce( ) {
+    SpillingSubsetStore store = open( true, 0 );
+    SubsetCursor cursor = cursor( store, true );
+    walkToEnd( cursor );
+    Set<String> visited = new HashSet<String>( );
+    List<Long> sums = sums( cursor );
+    for ( int rank = 1; rank <= cursor.getPosition( ); ++rank ) {
+      long[] elements = new long[ORDER];
+      int[] indices = cursor.getVisited( rank ).indices;
+      for ( int i = 0; i < ORDER; ++i ) {
+        elements[i] = VALUES[indices[i]];
+      }
+      assertTrue( visited.add( Arrays.toString( elements ) ), "rank " + rank + " visited twice" );
+      assertTrue( rank == 1 || sums.get( rank - 2 ) <= sums.get( rank - 1 ) );
+    }
+    assertEquals( multisets( VALUES, ORDER ), visited );
+    store.delete( );
+  }
+
+  @Test
+  public void resumeDiscardsWritesAfterTheLastCheckpoint( ) {
+    SubsetCursor uninterrupted = cursor( new HeapSubsetStore( ORDER ), false );
+    walkToEnd( uninterrupted );
+
+    SpillingSubsetStore store = open( false, 0 );
+    SubsetCursor cursor = cursor( store, false );
+    walk( cursor, 500 );
+    store.checkpoint( );
+    List<Long> checkpointed = sums( cursor );
+    Set<String> checkpointedSubsets = subsets( cursor );
+    // Far enough on to spill new runs and use up checkpointed ones, none of it checkpointed
+    walk( cursor, 1200 );
+    assertEquals( 1700, cursor.getPosition( ) );
+
+    SpillingSubsetStore resumed = open( false, 0 );
+    assertEquals( 500, resumed.visitedCount( ) );
+    SubsetCursor again = cursor( resumed, false );
+    assertEquals( checkpointed, sums( again ) );
+    assertEquals( checkpointedSubsets, subsets( again ) );
+    walkToEnd( again );
+    assertEquals( sums( uninterrupted ), sums( again ) );
+    assertEquals( subsets( uninterrupted ), subsets( again ) );
+    resumed.delete( );
+  }
+
+  private List<Path> runFiles( ) throws IOException {
+    List<Path> runs = new ArrayList<Path>( );
+    try ( DirectoryStream<Path> files = Files.newDirectoryStream( directory, "run-*.bin" ) ) {
+      files.forEach( runs::add );
+    }
+    return runs;
+  }
+
+  @Test
+  public void usedUpRunsAreDeletedWithoutACheckpoint( ) throws IOException {
+    SpillingSubsetStore store = open( false, 0 );
+    SubsetCursor cursor = cursor( store, false );
+    walk( cursor, 1000 );
+    assertFalse( runFiles( ).isEmpty( ) );
+    walkToEnd( cursor );
+    assertEquals( 0, runFiles( ).size( ) );
+    assertEquals( subsetSums( VALUES, ORDER ), sums( cursor ) );
+  }
+
+  @Test
+  public void usedUpRunsAreKeptUntilTheNextCheckpoint( ) throws IOException {
+    SpillingSubsetStore store = open( false, 0 );
+    SubsetCursor cursor = cursor( store, false );
+    walk( cursor, 300 );
+    store.checkpoint( );
+    List<Path> checkpointed = runFiles( );
+    walkToEnd( cursor );
+    // The walk can still be resumed from the checkpoint, so its runs are all still there
+    assertEquals( new HashSet<Path>( checkpointed ), new HashSet<Path>( runFiles( ) ) );
+    store.checkpoint( );
+    assertEquals( 0, runFiles( ).size( ) );
+  }
+
+  @Test
+  public void checkpointsAddNoRuns( ) throws IOException {
+    SpillingSubsetStore store = new SpillingSubsetStore( directory, VALUES, ORDER, false, 1 << 16,
+                                                         1 );
+    SubsetCursor cursor = cursor( store, false );
+    walk( cursor, 1000 );
+    assertEquals( 0, runFiles( ).size( ) );
+    SpillingSubsetStore resumed = new SpillingSubsetStore( directory, VALUES, ORDER, false, 8, 0 );
+    assertEquals( 1000, resumed.visitedCount( ) );
+    assertEquals( cursor.store.frontierSize( ), resumed.frontierSize( ) );
+    SubsetCursor again = cursor( resumed, false );
+    walkToEnd( again );
+    assertEquals( subsetSums( VALUES, ORDER ), sums( again ) );
+  }
+
+  @Test
+  public void frontierNodesAreTheChildrenOfTheVisitedNodesNotYetVisited( ) {
+    SpillingSubsetStore store = open( false, 0 );
+    SubsetCursor cursor = cursor( store, false );
+    SubsetCursor generator = cursor( new HeapSubsetStore( ORDER ), false );
+    for ( int step : new int[] { 1, 10, 100, 400, 1000, 1400 } ) {
+      walk( cursor, step );
+      Set<String> expected = new HashSet<String>( );
+      for ( int rank = 1; rank <= cursor.getPosition( ); ++rank ) {
+        for ( SubsetNode child : generator.buildChildren( cursor.getVisited( rank ) ) ) {
+          expected.add( Arrays.toString( child.indices ) );
+        }
+      }
+      expected.removeAll( subsets( cursor ) );
+      Set<String> frontier = new HashSet<String>( );
+      for ( int i = 0; i < store.frontierSize( ); ++i ) {
+        SubsetNode node = store.frontierNode( i );
+        assertTrue( frontier.add( Arrays.toString( node.indices ) ), "node " + i );
+        assertEquals( node.sum, sum( node.indices ) );
+      }
+      assertEquals( expected, frontier, "after " + cursor.getPosition( ) );
+      int size = store.frontierSize( );
+      assertThrows( IndexOutOfBoundsException.class, ( ) -> store.frontierNode( size ) );
+    }
+    // Counting from the frontier reads every frontier node once
+    List<Long> sums = subsetSums( VALUES, ORDER );
+    for ( long bound = -20; bound <= 80; bound += 7 ) {
+      long expected = 0;
+      for ( long sum : sums ) {
+        expected += sum < bound ? 1 : 0;
+      }
+      long counted = SubsetCounter.countBelow( cursor, bound );
+      assertEquals( expected, counted, "below " + bound );
+    }
+  }
+
+  @Test
+  public void periodicCheckpointsResumeFromTheLastOne( ) {
+    SpillingSubsetStore store = open( false, 100 );
+    SubsetCursor cursor = cursor( store, false );
+    walk( cursor, 750 );
+    SpillingSubsetStore resumed = open( false, 100 );
+    int position = resumed.visitedCount( );
+    assertTrue( position > 600 && position <= 750, "resumed at " + position );
+    SubsetCursor again = cursor( resumed, false );
+    assertEquals( sums( cursor ).subList( 0, position ), sums( again ) );
+    walkToEnd( again );
+    assertEquals( subsetSums( VALUES, ORDER ), sums( again ) );
+    resumed.delete( );
+  }
+
+  @Test
+  public void checkpointOfADifferentHeapIsRejected( ) {
+    SpillingSubsetStore store = open( false, 0 );
+    walk( cursor( store, false ), 100 );
+    store.checkpoint( );
+    assertThrows( IllegalArgumentException.class,
+                  ( ) -> new SpillingSubsetStore( directory, VALUES, ORDER + 1, false, 8, 0 ) );
+    assertThrows( IllegalArgumentException.class, ( ) -> open( true, 0 ) );
+    long[] other = VALUES.clone( );
+    other[3] = 1;
+    assertThrows( IllegalArgumentException.class,
+                  ( ) -> new SpillingSubsetStore( directory, other, ORDER, false, 8, 0 ) );
+  }
+
+  @Test
+  public void truncatedManifestIsRejected( ) throws IOException {
+    SpillingSubsetStore store = open( false, 0 );
+    walk( cursor( store, false ), 300 );
+    store.checkpoint( );
+    Path manifest = directory.resolve( "manifest" );
+    byte[] bytes = Files.readAllBytes( manifest );
+    Files.write( manifest, Arrays.copyOf( bytes, bytes.length - 4 ) );
+    assertThrows( UncheckedIOException.class, ( ) -> open( false, 0 ) );
+    Files.write( manifest, Arrays.copyOf( bytes, bytes.length + 4 ) );
+    assertThrows( UncheckedIOException.class, ( ) -> open( false, 0 ) );
+    Files.write( manifest, bytes );
+    assertEquals( 300, open( false, 0 ).visitedCount( ) );
+  }
+
+  @Test
+  public void truncatedVisitedFileIsRejected( ) throws IOException {
+    SpillingSubsetStore store = open( false, 0 );
+    walk( cursor( store, false ), 300 );
+    store.checkpoint( );
+    store.delete( );
+    assertFalse( Files.exists( directory ) );
+
+    store = open( false, 0 );
+    walk( cursor( store, false ), 300 );
+    store.checkpoint( );
+    try ( FileChannel file = FileChannel.open( directory.resolve( "visited.bin" ),
+                                               StandardOpenOption.WRITE ) ) {
+      file.truncate( 299L * ( 12 + 4 * ORDER ) );
+    }
+    assertThrows( UncheckedIOException.class, ( ) -> open( false, 0 ) );
+  }
+
+  @Test
+  public void missingOrTruncatedRunIsRejected( ) throws IOException {
+    SpillingSubsetStore store = open( false, 0 );
+    walk( cursor( store, false ), 300 );
+    store.checkpoint( );
+    List<Path> runs = runFiles( );
+    assertFalse( runs.isEmpty( ) );
+    Path run = runs.get( 0 );
+    byte[] bytes = Files.readAllBytes( run );
+    Files.write( run, Arrays.copyOf( bytes, bytes.length - 1 ) );
+    assertThrows( UncheckedIOException.class, ( ) -> open( false, 0 ) );
+    Files.delete( run );
+    assertThrows( UncheckedIOException.class, ( ) -> open( false, 0 ) );
+    Files.write( run, bytes );
+    SubsetCursor again = cursor( open( false, 0 ), false );
+    walkToEnd( again );
+    assertEquals( subsetSums( VALUES, ORDER ), sums( again ) );
+  }
+
+}
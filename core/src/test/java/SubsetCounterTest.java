@@ -0,0 +1,172 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class SubsetCounterTest {
+
+  private static long[] randomValues( Random random, int size ) {
+    long[] values = new long[size];
+    for ( int i = 0; i < size; ++i ) {
+      values[i] = random.nextInt( 40 ) - 15;
+    }
+    Arrays.sort( values );
+    return values;
+  }
+
+  /*
+   * Brute force: the sorted sums of the n-sized subsets of the sorted values, or of their
+   * distinct multisets
+   */
+  private static long[] subsetSums( long[] values, int n, boolean multiset ) {
+    long[] sums = new long[1 << values.length];
+    Set<String> seen = new HashSet<String>( );
+    int count = 0;
+    for ( long mask = 0; mask < 1L << values.length; ++mask ) {
+      if ( Long.bitCount( mask ) == n ) {
+        long[] elements = new long[n];
+        int j = 0;
+        long sum = 0;
+        for ( int i = 0; i < values.length; ++i ) {
+          if ( ( mask >>> i & 1 ) != 0 ) {
+            elements[j++] = values[i];
+            sum += values[i];
+          }
+        }
+        if ( !multiset || seen.add( Arrays.toString( elements ) ) ) {
+          sums[count++] = sum;
+        }
+      }
+    }
+    sums = Arrays.copyOf( sums, count );
+    Arrays.sort( sums );
+    return sums;
+  }
+
+  private static long countBelow( long[] sums, long sum ) {
+    long count = 0;
+    for ( long s : sums ) {
+      count += s < sum ? 1 : 0;
+    }
+    return count;
+  }
+
+  /*
+   * Checks every count, rank and run of sums of the search against a brute-force enumeration,
+   * for sums from below the least to above the greatest
+   */
+  private static void assertMatchesBruteForce( long[] values, SubsetSum search, boolean multiset ) {
+    String input = Arrays.toString( values );
+    long[][] sums = new long[values.length + 1][];
+    for ( int n = 1; n <= values.length; ++n ) {
+      sums[n] = subsetSums( values, n, multiset );
+      long least = sums[n][0];
+      long greatest = sums[n][sums[n].length - 1];
+      for ( long sum = least - 2; sum <= greatest + 2; ++sum ) {
+        String message = input + " order " + n + " sum " + sum;
+        long below = countBelow( sums[n], sum );
+        long atMost = countBelow( sums[n], sum + 1 );
+        assertEquals( below, search.countBelow( n, sum ), message );
+        assertEquals( atMost, search.countAtMost( n, sum ), message );
+        assertEquals( atMost > below ? below + 1 : -below - 1, search.rankOf( n, sum ), message );
+        assertEquals( countBelow( sums[n], sum + 6 ) - below,
+                      search.countBetween( n, sum, sum + 5 ), message );
+      }
+      assertEquals( 0, search.countBetween( n, greatest, least - 1 ) );
+      for ( int k = 1; k <= sums[n].length; k += 3 ) {
+        int to = Math.min( sums[n].length, k + 4 );
+        assertArrayEquals( Arrays.copyOfRange( sums[n], k - 1, to ), search.sumsFrom( n, k, 5 ),
+                           input + " order " + n + " rank " + k );
+      }
+      assertArrayEquals( new long[0], search.sumsFrom( n, sums[n].length + 1, 3 ) );
+    }
+    for ( long low = -40; low <= 60; low += 9 ) {
+      long expected = 0;
+      for ( int n = 1; n <= values.length; ++n ) {
+        expected += countBelow( sums[n], low + 13 ) - countBelow( sums[n], low );
+      }
+      assertEquals( expected, search.countBetween( low, low + 12 ), input + " from " + low );
+    }
+  }
+
+  @Test
+  public void countsMatchBruteForce( ) {
+    Random random = new Random( 17 );
+    for ( int trial = 0; trial < 12; ++trial ) {
+      long[] values = randomValues( random, 5 + random.nextInt( 6 ) );
+      for ( boolean dualEnded : new boolean[] { false, true } ) {
+        SubsetSum search = new SubsetSum( new ScaledInput( values ) );
+        search.dualEnded = dualEnded;
+        assertMatchesBruteForce( values, search, false );
+      }
+    }
+  }
+
+  @Test
+  public void countsOfMultisetsMatchBruteForce( ) {
+    Random random = new Random( 170 );
+    for ( int trial = 0; trial < 12; ++trial ) {
+      long[] values = randomValues( random, 5 + random.nextInt( 6 ) );
+      for ( int i = 1; i < values.length; i += 3 ) {
+        values[i] = values[i - 1];
+      }
+      SubsetSum search = new SubsetSum( new ScaledInput( values ) );
+      search.multiset = true;
+      assertMatchesBruteForce( values, search, true );
+    }
+  }
+
+  @Test
+  public void countingLeavesTheCursorsCountsAsTheyAre( ) {
+    long[] values = { 1, 2, 4, 7, 8, 11, 15, 16, 20, 23, 30, 31 };
+    long[] sums = subsetSums( values, 5, false );
+    for ( SubsetCursor cursor : new SubsetCursor[] {
+        new SubsetCursor( values, SubsetCursor.buildTree( values, 5 ) ),
+        new MultisetCursor( values, 5 ) } ) {
+      cursor.findKthMin( 20 );
+      long popped = cursor.popped;
+      long generated = cursor.generated;
+      long skipped = cursor.skipped;
+      int position = cursor.getPosition( );
+      for ( long sum = sums[0]; sum <= sums[sums.length - 1] + 1; sum += 4 ) {
+        assertEquals( countBelow( sums, sum ), SubsetCounter.countBelow( cursor, sum ) );
+      }
+      assertEquals( popped, cursor.popped );
+      assertEquals( generated, cursor.generated );
+      assertEquals( skipped, cursor.skipped );
+      assertEquals( position, cursor.getPosition( ) );
+    }
+  }
+
+  @Test
+  public void generatingChildrenCountsOnlyWhenBuilding( ) {
+    long[] values = { 1, 1, 2, 3, 5, 5, 5, 8, 13 };
+    for ( SubsetCursor cursor : new SubsetCursor[] {
+        new SubsetCursor( values, SubsetCursor.buildTree( values, 4 ) ),
+        new MultisetCursor( values, 4 ) } ) {
+      SubsetNode node = cursor.findKthMin( 7 );
+      long generated = cursor.generated;
+      long skipped = cursor.skipped;
+      List<SubsetNode> children = new ArrayList<SubsetNode>( );
+      int skippedChildren = cursor.generateChildren( node, children );
+      assertEquals( generated, cursor.generated );
+      assertEquals( skipped, cursor.skipped );
+      List<SubsetNode> built = cursor.buildChildren( node );
+      assertEquals( children.size( ), built.size( ) );
+      for ( int i = 0; i < built.size( ); ++i ) {
+        assertArrayEquals( children.get( i ).indices, built.get( i ).indices );
+        assertEquals( children.get( i ).sum, built.get( i ).sum );
+      }
+      assertEquals( generated + built.size( ), cursor.generated );
+      assertEquals( skipped + skippedChildren, cursor.skipped );
+    }
+  }
+
+}
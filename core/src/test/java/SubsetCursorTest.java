@@ -0,0 +1,138 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SubsetCursorTest {
+
+  private static final long[] VALUES = { -9, -4, -4, 0, 2, 5, 7, 7, 12, 18, 21 };
+  private static final int ORDER = 4;
+
+  /*
+   * Brute force: the sums of all the n-sized subsets of the values, in increasing order
+   */
+  private static List<Long> sortedSums( long[] values, int n ) {
+    List<Long> sums = new ArrayList<Long>( );
+    for ( int mask = 0; mask < 1 << values.length; ++mask ) {
+      if ( Integer.bitCount( mask ) != n ) {
+        continue;
+      }
+      long sum = 0;
+      for ( int i = 0; i < values.length; ++i ) {
+        if ( ( mask >>> i & 1 ) != 0 ) {
+          sum += values[i];
+        }
+      }
+      sums.add( sum );
+    }
+    Collections.sort( sums );
+    return sums;
+  }
+
+  private static SubsetCursor cursor( ) {
+    return new SubsetCursor( VALUES, SubsetCursor.buildTree( VALUES, ORDER ) );
+  }
+
+  @Test
+  public void cancelledCursorOnlyAnswersWhatItHasVisited( ) {
+    List<Long> sums = sortedSums( VALUES, ORDER );
+    SubsetCursor cursor = cursor( );
+    assertEquals( (long) sums.get( 39 ), cursor.findKthMin( 40 ).sum );
+    cursor.cancel( );
+    assertTrue( cursor.isCancelled( ) );
+    long popped = cursor.popped;
+    // A rank beyond the walk is not reached, and the walk does not move
+    assertNull( cursor.findKthMin( 41 ) );
+    assertNull( cursor.findKthMin( sums.size( ) ) );
+    assertEquals( 40, cursor.getPosition( ) );
+    assertEquals( popped, cursor.popped );
+    // Ranks and sums already visited are still answered
+    for ( int k = 1; k <= 40; ++k ) {
+      assertEquals( (long) sums.get( k - 1 ), cursor.findKthMin( k ).sum, "rank " + k );
+    }
+    assertNotNull( cursor.seekSum( sums.get( 17 ) ) );
+    long beyond = sums.get( sums.size( ) - 1 );
+    assertTrue( beyond > cursor.getVisitedSum( 40 ) );
+    assertNull( cursor.seekSum( beyond ) );
+    assertEquals( 40, cursor.getPosition( ) );
+    assertEquals( popped, cursor.popped );
+  }
+
+  @Test
+  public void resumedCursorWalksOnFromWhereItWasCancelled( ) {
+    List<Long> sums = sortedSums( VALUES, ORDER );
+    SubsetCursor cursor = cursor( );
+    cursor.findKthMin( 25 );
+    cursor.cancel( );
+    assertNull( cursor.findKthMin( 100 ) );
+    cursor.resume( );
+    assertFalse( cursor.isCancelled( ) );
+    // The walk goes on to every subset, each visited once, in order of sum
+    assertEquals( (long) sums.get( 99 ), cursor.findKthMin( 100 ).sum );
+    assertEquals( (long) sums.get( sums.size( ) - 1 ), cursor.findKthMin( sums.size( ) ).sum );
+    assertNull( cursor.findKthMin( sums.size( ) + 1 ) );
+    assertFalse( cursor.hasNext( ) );
+    assertEquals( sums.size( ), cursor.popped );
+    for ( int k = 1; k <= sums.size( ); ++k ) {
+      assertEquals( (long) sums.get( k - 1 ), cursor.getVisitedSum( k ), "rank " + k );
+    }
+    // As much work as a cursor that was never cancelled
+    SubsetCursor uncancelled = cursor( );
+    uncancelled.findKthMin( sums.size( ) );
+    assertEquals( uncancelled.generated, cursor.generated );
+    assertEquals( uncancelled.skipped, cursor.skipped );
+    assertEquals( uncancelled.frontierPeak, cursor.frontierPeak );
+  }
+
+  @Test
+  public void seekingASumResumesAfterCancel( ) {
+    List<Long> sums = sortedSums( VALUES, ORDER );
+    SubsetCursor cursor = cursor( );
+    cursor.cancel( );
+    long sum = sums.get( 60 );
+    assertNull( cursor.seekSum( sum ) );
+    assertEquals( 0, cursor.getPosition( ) );
+    cursor.resume( );
+    SubsetNode node = cursor.seekSum( sum );
+    assertEquals( sum, node.sum );
+    assertEquals( sums.indexOf( sum ) + 1, cursor.getPosition( ) );
+  }
+
+  @Test
+  public void searchResumesTheCachedCursorsThatWereCancelled( ) {
+    SubsetSum search = new SubsetSum( new ScaledInput( VALUES ) );
+    search.dualEnded = false;
+    search.cache = new SubsetRankCache( 64L << 20 );
+    List<SubsetCursor> cached = new ArrayList<SubsetCursor>( );
+    for ( int n = 1; n <= VALUES.length; ++n ) {
+      SubsetCursor cursor = search.cursor( n, HeapEnd.MIN );
+      cursor.cancel( );
+      cached.add( cursor );
+    }
+    assertSame( cached.get( ORDER - 1 ), search.cursor( ORDER, HeapEnd.MIN ) );
+    assertFalse( cached.get( ORDER - 1 ).isCancelled( ) );
+    // A sum at the far end of the 4-sized heap, which no search can find without walking
+    long target = 7 + 12 + 18 + 21;
+    SubsetNode node = search.search( target );
+    assertNotNull( node );
+    long sum = 0;
+    for ( int index : node.indices ) {
+      sum += VALUES[index];
+    }
+    assertEquals( target, sum );
+    int walked = 0;
+    for ( SubsetCursor cursor : cached ) {
+      walked += cursor.getPosition( );
+    }
+    assertTrue( walked > 0 );
+  }
+
+}
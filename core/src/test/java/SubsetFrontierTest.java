@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class SubsetFrontierTest {
+
+  /*
+   * The sum of the node a handle refers to, with many handles sharing each sum
+   */
+  private static long sumOf( int handle ) {
+    return ( handle * 7919L ) % 1009 - 500;
+  }
+
+  /*
+   * Checks that every entry sums to no less than its parent, and that each handle is still
+   * paired with its own sum
+   */
+  private static void assertIsHeap( SubsetFrontier frontier ) {
+    for ( int i = 0; i < frontier.size( ); ++i ) {
+      assertEquals( sumOf( frontier.handles[i] ), frontier.sums[i], "entry " + i );
+      if ( i > 0 ) {
+        assertTrue( frontier.sums[( i - 1 ) >>> 1] <= frontier.sums[i], "entry " + i );
+      }
+    }
+  }
+
+  @Test
+  public void growingFrontierPollsInOrderOfSum( ) {
+    Random random = new Random( 3 );
+    SubsetFrontier frontier = new SubsetFrontier( 1 );
+    PriorityQueue<Long> reference = new PriorityQueue<Long>( );
+    int handle = 0;
+    // Mostly adds at first, so that the arrays double many times while the heap is in use
+    for ( int step = 0; step < 60000; ++step ) {
+      boolean add = random.nextInt( 100 ) < ( step < 30000 ? 70 : 35 );
+      if ( add || reference.isEmpty( ) ) {
+        frontier.add( sumOf( handle ), handle );
+        reference.add( sumOf( handle ) );
+        ++handle;
+      }
+      else {
+        long sum = frontier.peekSum( );
+        int top = frontier.peek( );
+        assertEquals( top, frontier.poll( ) );
+        assertEquals( (long) reference.poll( ), sum, "step " + step );
+        assertEquals( sumOf( top ), sum, "step " + step );
+      }
+      assertEquals( reference.size( ), frontier.size( ) );
+      if ( step % 5000 == 0 ) {
+        assertIsHeap( frontier );
+      }
+    }
+    assertTrue( frontier.sums.length >= 8192 );
+    assertIsHeap( frontier );
+    long previous = Long.MIN_VALUE;
+    while ( !frontier.isEmpty( ) ) {
+      long sum = frontier.peekSum( );
+      assertTrue( sum >= previous );
+      assertEquals( sumOf( frontier.poll( ) ), sum );
+      assertEquals( (long) reference.poll( ), sum );
+      previous = sum;
+    }
+    assertTrue( reference.isEmpty( ) );
+  }
+
+  @Test
+  public void entriesAddedInDescendingOrderSiftToTheTop( ) {
+    SubsetFrontier frontier = new SubsetFrontier( );
+    for ( int handle = 999; handle >= 0; --handle ) {
+      frontier.add( handle, handle );
+      assertEquals( handle, frontier.peek( ) );
+      assertEquals( handle, frontier.peekSum( ) );
+    }
+    for ( int handle = 0; handle < 1000; ++handle ) {
+      assertEquals( handle, frontier.poll( ) );
+    }
+  }
+
+  @Test
+  public void emptyFrontierHasNoTop( ) {
+    SubsetFrontier frontier = new SubsetFrontier( 0 );
+    assertEquals( 1, frontier.sums.length );
+    assertTrue( frontier.isEmpty( ) );
+    assertEquals( -1, frontier.peek( ) );
+    assertEquals( -1, frontier.poll( ) );
+    assertThrows( NoSuchElementException.class, ( ) -> frontier.peekSum( ) );
+    frontier.add( 5, 1 );
+    frontier.add( 5, 2 );
+    frontier.add( -3, 3 );
+    assertEquals( 3, frontier.poll( ) );
+    frontier.clear( );
+    assertTrue( frontier.isEmpty( ) );
+    assertEquals( -1, frontier.poll( ) );
+    // The arrays are kept, and filled again from the top
+    frontier.add( 8, 4 );
+    assertEquals( 4, frontier.peek( ) );
+    assertEquals( 8, frontier.peekSum( ) );
+  }
+
+}
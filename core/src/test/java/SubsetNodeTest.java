@@ -0,0 +1,154 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class SubsetNodeTest {
+
+  private static long sum( long[] values, int[] indices ) {
+    long sum = 0;
+    for ( int index : indices ) {
+      sum += values[index];
+    }
+    return sum;
+  }
+
+  /*
+   * Brute force: the sums of all the n-sized subsets of the values, in increasing order
+   */
+  private static List<Long> sortedSums( long[] values, int n ) {
+    List<Long> sums = new ArrayList<Long>( );
+    for ( int mask = 0; mask < 1 << values.length; ++mask ) {
+      if ( Integer.bitCount( mask ) == n ) {
+        long sum = 0;
+        for ( int i = 0; i < values.length; ++i ) {
+          if ( ( mask >>> i & 1 ) != 0 ) {
+            sum += values[i];
+          }
+        }
+        sums.add( sum );
+      }
+    }
+    Collections.sort( sums );
+    return sums;
+  }
+
+  @Test
+  public void everySubsetIsGeneratedOnceFromItsParent( ) {
+    long[][] inputs = { { 1, 2, 3, 4, 5, 6 }, { -7, -3, 0, 0, 4, 9, 9, 15, 22 },
+                        { 2, 2, 2, 2, 2 }, { 5 } };
+    for ( long[] values : inputs ) {
+      for ( int n = 1; n <= values.length; ++n ) {
+        String message = Arrays.toString( values ) + " n=" + n;
+        SubsetCursor cursor = new SubsetCursor( values, SubsetCursor.buildTree( values, n ) );
+        Set<String> seen = new HashSet<String>( );
+        ArrayDeque<SubsetNode> queue = new ArrayDeque<SubsetNode>( );
+        queue.add( cursor.root );
+        List<SubsetNode> children = new ArrayList<SubsetNode>( );
+        while ( !queue.isEmpty( ) ) {
+          SubsetNode node = queue.poll( );
+          assertTrue( seen.add( Arrays.toString( node.indices ) ), message + " " + node );
+          assertEquals( sum( values, node.indices ), node.sum, message + " " + node );
+          children.clear( );
+          cursor.generateChildren( node, children );
+          assertEquals( !children.isEmpty( ), cursor.hasChildren( node ), message + " " + node );
+          for ( SubsetNode child : children ) {
+            // A min-heap, whose children only ever change the elements from their own limit on
+            assertTrue( child.compareTo( node ) >= 0, message + " " + child );
+            assertTrue( child.limit >= node.limit, message + " " + child );
+            for ( int i = 0; i < child.limit; ++i ) {
+              assertEquals( node.indices[i], child.indices[i], message + " " + child );
+            }
+            queue.add( child );
+          }
+        }
+        assertEquals( sortedSums( values, n ).size( ), seen.size( ), message );
+      }
+    }
+  }
+
+  @Test
+  public void incrementingAnElementResolvesEachConflict( ) {
+    long[] values = { 1, 10, 100, 1000, 10000 };
+    SubsetCursor cursor = new SubsetCursor( values, SubsetCursor.buildTree( values, 3 ) );
+    SubsetNode root = cursor.root;
+    assertArrayEquals( new int[] { 0, 1, 2 }, root.indices );
+    assertEquals( 111, root.sum );
+    // The first element displaces the second, which displaces the third
+    SubsetNode child = cursor.incrementList( root, 0 );
+    assertArrayEquals( new int[] { 1, 2, 3 }, child.indices );
+    assertEquals( 1110, child.sum );
+    assertEquals( 0, child.limit );
+    child = cursor.incrementList( root, 2 );
+    assertArrayEquals( new int[] { 0, 1, 3 }, child.indices );
+    assertEquals( 1011, child.sum );
+    assertEquals( 2, child.limit );
+    // No greater element is left to displace into
+    SubsetNode last = new SubsetNode( new int[] { 1, 3, 4 }, 11010, 1 );
+    assertNull( cursor.incrementList( last, 1 ) );
+    assertNull( cursor.incrementList( last, 2 ) );
+    assertEquals( 0, cursor.generateChildren( last, new ArrayList<SubsetNode>( ) ) );
+    // Only the elements from the limit on are incremented
+    SubsetNode node = new SubsetNode( new int[] { 0, 2, 3 }, 1101, 0 );
+    List<SubsetNode> children = new ArrayList<SubsetNode>( );
+    assertEquals( 0, cursor.generateChildren( node, children ) );
+    assertEquals( "[[0, 2, 4]=10101, [0, 3, 4]=11001, [1, 2, 3]=1110]", children.toString( ) );
+    node = new SubsetNode( new int[] { 0, 3, 4 }, 11001, 0 );
+    children.clear( );
+    assertEquals( 0, cursor.generateChildren( node, children ) );
+    assertTrue( children.isEmpty( ) );
+    node = new SubsetNode( new int[] { 1, 2, 3 }, 1110, 0 );
+    children.clear( );
+    assertEquals( 0, cursor.generateChildren( node, children ) );
+    assertEquals( "[[1, 2, 4]=10110, [1, 3, 4]=11010, [2, 3, 4]=11100]", children.toString( ) );
+  }
+
+  @Test
+  public void nodeLooksUpItsElements( ) {
+    long[] values = { -4, 3, 3, 8, 20 };
+    SubsetNode node = new SubsetNode( new int[] { 0, 2, 4 }, 19, 1 );
+    assertArrayEquals( new long[] { -4, 3, 20 }, node.getData( values ) );
+    assertEquals( 3, node.size( ) );
+    assertEquals( 19, node.getSum( ) );
+    assertEquals( 1, node.getLimit( ) );
+    assertEquals( "[0, 2, 4]=19", node.toString( ) );
+    SubsetNode same = new SubsetNode( new int[] { 1, 2, 3 }, 19, 0 );
+    assertEquals( 0, node.compareTo( same ) );
+    assertTrue( node.compareTo( new SubsetNode( new int[] { 3 }, Long.MAX_VALUE, 0 ) ) < 0 );
+    assertTrue( node.compareTo( new SubsetNode( new int[] { 0 }, Long.MIN_VALUE, 0 ) ) > 0 );
+  }
+
+  @Test
+  public void virtualTreeFindsEachRankOfItsHeap( ) {
+    VirtualSubsetTree tree = new VirtualSubsetTree( );
+    List<Long> sums = sortedSums( tree.values, tree.subsetLen );
+    // Every rank, from the deepest down, which after the first is answered from the cache
+    for ( int k = sums.size( ); k >= 1; --k ) {
+      SubsetNode node = tree.findKthMin( tree.tree, k );
+      assertEquals( (long) sums.get( k - 1 ), node.sum, "rank " + k );
+      assertEquals( sum( tree.values, node.indices ), node.sum );
+    }
+    assertNull( tree.findKthMin( tree.tree, sums.size( ) + 1 ) );
+    assertEquals( sums.size( ), tree.cache.get( tree.values, tree.subsetLen ).popped );
+    // A smaller heap, whose root is built for its order
+    tree.subsetLen = 2;
+    SubsetNode root = tree.buildTree( tree.values );
+    assertArrayEquals( new int[] { 0, 1 }, root.indices );
+    assertEquals( (long) sortedSums( tree.values, 2 ).get( 6 ), tree.findKthMin( root, 7 ).sum );
+    // A node below the root of its heap is not the root of a heap of its own
+    SubsetNode child = new SubsetCursor( tree.values, root ).incrementList( root, 1 );
+    assertThrows( IllegalArgumentException.class, ( ) -> tree.findKthMin( child, 1 ) );
+  }
+
+}
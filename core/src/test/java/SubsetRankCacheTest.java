@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class SubsetRankCacheTest {
+
+  /*
+   * Sorted values of the same length for each seed, so that the fresh cursors of their heaps
+   * all take the same memory
+   */
+  private static long[] values( int seed ) {
+    long[] values = new long[16];
+    for ( int i = 0; i < values.length; ++i ) {
+      values[i] = seed * 100 + 3 * i;
+    }
+    return values;
+  }
+
+  @Test
+  public void cachedKeyIsACopyOfTheCallersValues( ) {
+    SubsetRankCache cache = new SubsetRankCache( 64L << 20 );
+    long[] values = values( 1 );
+    SubsetCursor cursor = cache.get( values, 3 );
+    assertNotSame( values, cursor.values );
+    // Changing the caller's array changes neither the cursor nor the key it is cached under
+    values[0] = -1000;
+    assertArrayEquals( values( 1 ), cursor.values );
+    assertSame( cursor, cache.get( values( 1 ), 3 ) );
+    SubsetCursor changed = cache.get( values, 3 );
+    assertNotSame( cursor, changed );
+    assertEquals( -1000 + 103 + 106, changed.findKthMin( 1 ).sum );
+    assertEquals( 100 + 103 + 106, cursor.findKthMin( 1 ).sum );
+    assertEquals( 2, cache.size( ) );
+  }
+
+  @Test
+  public void eachOrderAndKindOfHeapHasItsOwnCursor( ) {
+    SubsetRankCache cache = new SubsetRankCache( 64L << 20 );
+    long[] values = values( 2 );
+    SubsetCursor cursor = cache.get( values, 4 );
+    assertSame( cursor, cache.get( values.clone( ), 4 ) );
+    assertSame( cursor, cache.get( values, 4, false, false ) );
+    assertNotSame( cursor, cache.get( values, 5 ) );
+    assertTrue( cache.get( values, 4, true, false ) instanceof MultisetCursor );
+    assertTrue( cache.get( values, 4, false, true ).store instanceof DirectSubsetStore );
+    assertEquals( 4, cache.size( ) );
+    cache.clear( );
+    assertEquals( 0, cache.size( ) );
+    assertEquals( 0, cache.memoryBytes( ) );
+    assertNotSame( cursor, cache.get( values, 4 ) );
+  }
+
+  @Test
+  public void leastRecentlyUsedCursorsAreEvictedFirst( ) {
+    SubsetRankCache cache = new SubsetRankCache( Long.MAX_VALUE );
+    SubsetCursor first = cache.get( values( 1 ), 4 );
+    SubsetCursor second = cache.get( values( 2 ), 4 );
+    SubsetCursor third = cache.get( values( 3 ), 4 );
+    long bytes = first.memoryBytes( );
+    assertEquals( bytes, second.memoryBytes( ) );
+    assertEquals( 3 * bytes, cache.memoryBytes( ) );
+    // Room for three fresh cursors, of which the second is now the least recently used
+    cache.budget = 3 * bytes;
+    assertSame( first, cache.get( values( 1 ), 4 ) );
+    SubsetCursor fourth = cache.get( values( 4 ), 4 );
+    assertEquals( 3, cache.size( ) );
+    assertSame( first, cache.get( values( 1 ), 4 ) );
+    assertSame( third, cache.get( values( 3 ), 4 ) );
+    assertSame( fourth, cache.get( values( 4 ), 4 ) );
+    assertEquals( 3, cache.size( ) );
+
+    // A cursor that grows is measured again when it is next used, and the cursor used least
+    // recently makes way for it
+    third.findKthMin( 10 );
+    assertTrue( third.memoryBytes( ) > bytes && third.memoryBytes( ) < 2 * bytes );
+    assertEquals( 3, cache.size( ) );
+    assertSame( third, cache.get( values( 3 ), 4 ) );
+    assertEquals( 2, cache.size( ) );
+    assertSame( third, cache.get( values( 3 ), 4 ) );
+    assertSame( fourth, cache.get( values( 4 ), 4 ) );
+    assertTrue( cache.memoryBytes( ) <= cache.budget );
+    assertNotSame( first, cache.get( values( 1 ), 4 ) );
+  }
+
+  @Test
+  public void cursorInUseIsKeptEvenOverTheBudget( ) {
+    SubsetRankCache cache = new SubsetRankCache( Long.MAX_VALUE );
+    SubsetCursor other = cache.get( values( 1 ), 4 );
+    SubsetCursor cursor = cache.get( values( 2 ), 4 );
+    cursor.findKthMin( 500 );
+    cache.budget = cursor.memoryBytes( ) - 1;
+    // The cursor asked for is handed out, and only the others are evicted
+    assertSame( cursor, cache.get( values( 2 ), 4 ) );
+    assertEquals( 1, cache.size( ) );
+    assertTrue( cache.memoryBytes( ) > cache.budget );
+    assertNotSame( other, cache.get( values( 1 ), 4 ) );
+    // Once no cursor is in use, all that do not fit are evicted
+    cache.budget = 0;
+    cache.trim( );
+    assertEquals( 0, cache.size( ) );
+  }
+
+}
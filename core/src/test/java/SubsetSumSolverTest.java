@@ -0,0 +1,187 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class SubsetSumSolverTest {
+
+  private static SubsetTreeSolver treeSolver( SearchMode mode ) {
+    SubsetTreeSolver solver = new SubsetTreeSolver( );
+    solver.mode = mode;
+    return solver;
+  }
+
+  private static SubsetSumSolver[] solvers( ) {
+    return new SubsetSumSolver[] { treeSolver( SearchMode.BINARY ),
+                                   treeSolver( SearchMode.INTERPOLATION ),
+                                   treeSolver( SearchMode.THRESHOLD ),
+                                   new MeetInTheMiddleSolver( ), new BitsetSolver( ),
+                                   new AutoSolver( ) };
+  }
+
+  /*
+   * Brute force: the least size of a non-empty subset of the values summing to each sum from
+   * least to least + sizes.length - 1, or 0 where none does
+   */
+  private static int[] leastSizes( long[] values, long least, int range ) {
+    int[] sizes = new int[range];
+    for ( int mask = 1; mask < 1 << values.length; ++mask ) {
+      long sum = 0;
+      for ( int i = 0; i < values.length; ++i ) {
+        if ( ( mask >>> i & 1 ) != 0 ) {
+          sum += values[i];
+        }
+      }
+      int at = (int) ( sum - least );
+      if ( sizes[at] == 0 || Integer.bitCount( mask ) < sizes[at] ) {
+        sizes[at] = Integer.bitCount( mask );
+      }
+    }
+    return sizes;
+  }
+
+  /*
+   * Checks that the result is a non-empty subset of the input, in increasing order of position,
+   * whose elements sum to the target
+   */
+  static void assertSolves( ScaledInput input, long target, SubsetSumResult result,
+                            String message ) {
+    assertNotNull( result, message );
+    assertTrue( result.size( ) > 0, message );
+    long sum = 0;
+    for ( int i = 0; i < result.size( ); ++i ) {
+      assertTrue( i == 0 || result.indices[i] > result.indices[i - 1], message + " " + result );
+      assertEquals( input.values[result.indices[i]], result.values[i], message );
+      sum += result.values[i];
+    }
+    assertEquals( target, sum, message + " " + result );
+    assertEquals( target, result.sum, message );
+  }
+
+  @Test
+  public void everySolverMatchesBruteForce( ) {
+    Random random = new Random( 8 );
+    for ( int trial = 0; trial < 24; ++trial ) {
+      long[] values = new long[1 + random.nextInt( 13 )];
+      int spread = trial % 3 == 0 ? 8 : 90;
+      for ( int i = 0; i < values.length; ++i ) {
+        values[i] = random.nextInt( spread ) - spread / 3;
+      }
+      ScaledInput input = new ScaledInput( values );
+      long least = 0;
+      long greatest = 0;
+      for ( long value : values ) {
+        least += Math.min( value, 0 );
+        greatest += Math.max( value, 0 );
+      }
+      int[] sizes = leastSizes( input.values, least, (int) ( greatest - least + 1 ) );
+      int stride = Math.max( 1, sizes.length / 150 );
+      for ( long target = least - 2; target <= greatest + 2; ++target ) {
+        // Every target near the ends of the range and 0, and a sample of those between
+        if ( target > least && target < greatest && target != 0
+             && ( target - least ) % stride != 0 ) {
+          continue;
+        }
+        int size = target >= least && target <= greatest ? sizes[(int) ( target - least )] : 0;
+        for ( SubsetSumSolver solver : solvers( ) ) {
+          String message = solver.getClass( ).getSimpleName( ) + " " + Arrays.toString( values )
+                           + " target " + target;
+          SubsetSumResult result = solver.solve( input, target );
+          if ( size == 0 ) {
+            assertNull( result, message );
+            continue;
+          }
+          assertSolves( input, target, result, message );
+          if ( solver instanceof SubsetTreeSolver ) {
+            assertEquals( size, result.size( ), message + " is not a smallest subset" );
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void targetZeroNeedsANonEmptySubset( ) {
+    long[][] inputs = { { 1, 2, 3 }, { -3, 1, 2 }, { -5, -1, 4, 9 }, { 0, 7 }, { -2, 2 },
+                        { -4, -4, 8 }, { -9, 2, 3 }, { 5 }, { 0 } };
+    for ( long[] values : inputs ) {
+      ScaledInput input = new ScaledInput( values );
+      boolean zero = leastSizes( input.values, -20, 60 )[20] > 0;
+      for ( SubsetSumSolver solver : solvers( ) ) {
+        String message = solver.getClass( ).getSimpleName( ) + " " + Arrays.toString( values );
+        SubsetSumResult result = solver.solve( input, 0 );
+        if ( zero ) {
+          assertSolves( input, 0, result, message );
+        }
+        else {
+          assertNull( result, message );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void emptyInputHasNoSolution( ) {
+    ScaledInput input = new ScaledInput( new long[0] );
+    for ( SubsetSumSolver solver : solvers( ) ) {
+      assertNull( solver.solve( input, 0 ) );
+      assertNull( solver.solve( input, 3 ) );
+    }
+  }
+
+  /*
+   * Distinct powers of two, so that each sum of them is reached by exactly one subset, and so
+   * that every subset sum is even
+   */
+  private static long[] powersOfTwo( int size ) {
+    long[] values = new long[size];
+    for ( int i = 0; i < size; ++i ) {
+      values[i] = 2L << i;
+    }
+    return values;
+  }
+
+  @Test
+  public void meetInTheMiddleTakesSetsUpToItsMaximumSize( ) {
+    MeetInTheMiddleSolver solver = new MeetInTheMiddleSolver( );
+    ScaledInput input = new ScaledInput( powersOfTwo( MeetInTheMiddleSolver.MAX_SIZE ) );
+    // One element from each end of each half
+    long target = input.values[0] + input.values[19] + input.values[20] + input.values[39];
+    SubsetSumResult result = solver.solve( input, target );
+    assertSolves( input, target, result, "maximum size" );
+    assertEquals( 4, result.size( ) );
+    assertNull( solver.solve( input, target + 1 ) );
+    ScaledInput larger = new ScaledInput( powersOfTwo( MeetInTheMiddleSolver.MAX_SIZE + 1 ) );
+    assertThrows( IllegalArgumentException.class, ( ) -> solver.solve( larger, 2 ) );
+  }
+
+  @Test
+  public void autoSolverSearchesSmallSetsWithTheSubsetHeaps( ) {
+    AutoSolver solver = new AutoSolver( );
+    long[] values = new long[AutoSolver.SMALL_SIZE + 1];
+    for ( int i = 0; i < values.length; ++i ) {
+      values[i] = i - 4;
+    }
+    ScaledInput small = new ScaledInput( Arrays.copyOf( values, AutoSolver.SMALL_SIZE ) );
+    assertSame( solver.treeSolver, solver.choose( small ) );
+    // The same narrow values, one more of them, fit the bitset
+    ScaledInput narrow = new ScaledInput( values );
+    assertSame( solver.bitsetSolver, solver.choose( narrow ) );
+    // Values too wide for the bitset are met in the middle, up to its maximum size
+    ScaledInput wide = new ScaledInput( powersOfTwo( MeetInTheMiddleSolver.MAX_SIZE ) );
+    assertSame( solver.meetInTheMiddleSolver, solver.choose( wide ) );
+    ScaledInput wider = new ScaledInput( powersOfTwo( MeetInTheMiddleSolver.MAX_SIZE + 1 ) );
+    assertSame( solver.treeSolver, solver.choose( wider ) );
+    assertSolves( narrow, 17, solver.solve( narrow, 17 ), "narrow" );
+    assertSolves( wider, 2L + ( 2L << 40 ), solver.solve( wider, 2L + ( 2L << 40 ) ), "wider" );
+    assertNull( solver.solve( wider, 3 ) );
+  }
+
+}
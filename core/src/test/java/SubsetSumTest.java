@@ -0,0 +1,411 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SubsetSumTest {
+
+  @TempDir
+  Path directory;
+
+  private static ScaledInput randomInput( Random random, int size ) {
+    long[] values = new long[size];
+    for ( int i = 0; i < size; ++i ) {
+      values[i] = random.nextInt( 100 ) - 30;
+    }
+    return new ScaledInput( values );
+  }
+
+  /*
+   * Brute force: whether any non-empty subset of the values sums to the target
+   */
+  private static boolean hasSubset( long[] values, long target ) {
+    for ( long mask = 1; mask < 1L << values.length; ++mask ) {
+      long sum = 0;
+      for ( int i = 0; i < values.length; ++i ) {
+        if ( ( mask >>> i & 1 ) != 0 ) {
+          sum += values[i];
+        }
+      }
+      if ( sum == target ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long sum( ScaledInput input, SubsetNode node ) {
+    long sum = 0;
+    for ( int index : node.indices ) {
+      sum += input.values[index];
+    }
+    return sum;
+  }
+
+  /*
+   * Brute force: the positions in the sorted values of every non-empty subset summing to the
+   * target, each as a string, by size
+   */
+  private static List<Set<String>> subsetsSummingTo( long[] values, long target ) {
+    List<Set<String>> subsets = new ArrayList<Set<String>>( );
+    for ( int n = 0; n <= values.length; ++n ) {
+      subsets.add( new HashSet<String>( ) );
+    }
+    for ( long mask = 1; mask < 1L << values.length; ++mask ) {
+      int[] indices = new int[Long.bitCount( mask )];
+      int count = 0;
+      long sum = 0;
+      for ( int i = 0; i < values.length; ++i ) {
+        if ( ( mask >>> i & 1 ) != 0 ) {
+          indices[count++] = i;
+          sum += values[i];
+        }
+      }
+      if ( sum == target ) {
+        subsets.get( count ).add( Arrays.toString( indices ) );
+      }
+    }
+    return subsets;
+  }
+
+  private static String sortedIndices( SubsetNode node ) {
+    int[] indices = node.indices.clone( );
+    Arrays.sort( indices );
+    return Arrays.toString( indices );
+  }
+
+  @Test
+  public void parallelSearchWithSharedCursorsNeverWalksTheComplementHeap( ) {
+    ScaledInput input = new ScaledInput( new long[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 } );
+    SubsetSum search = new SubsetSum( input );
+    // The 7 largest values sum to 49, so 48 is nearer the top of the range of the 7-sized
+    // subsets, whose complements are the smaller 3-sized subsets
+    long scaledTarget = search.scaleTarget( 48, 7 );
+    assertEquals( HeapEnd.COMPLEMENT, search.chooseEnd( 7, scaledTarget ) );
+    assertEquals( HeapEnd.COMPLEMENT, search.chooseParallelEnd( 7, scaledTarget ) );
+    search.cache = new SubsetRankCache( 64L << 20 );
+    assertEquals( HeapEnd.MAX, search.chooseParallelEnd( 7, scaledTarget ) );
+  }
+
+  @Test
+  public void parallelSearchWithCacheHandsEachTaskItsOwnCursor( ) {
+    SubsetSum search = new SubsetSum( new ScaledInput( twentyValues( ) ) );
+    search.cache = new SubsetRankCache( 64L << 20 );
+    assertEachTaskHasItsOwnCursor( search );
+  }
+
+  @Test
+  public void parallelSearchWithSpillDirectoryHandsEachTaskItsOwnCursor( ) {
+    SubsetSum search = new SubsetSum( new ScaledInput( twentyValues( ) ) );
+    search.spillDirectory = directory;
+    assertTrue( search.sharesCursors( ) );
+    assertEachTaskHasItsOwnCursor( search );
+  }
+
+  private static long[] twentyValues( ) {
+    long[] values = new long[20];
+    for ( int i = 0; i < values.length; ++i ) {
+      values[i] = i - 10;
+    }
+    return values;
+  }
+
+  /*
+   * Checks that the tasks of a parallel search for each of a range of targets are handed
+   * distinct cursors, for targets that would otherwise share one through the complement heap
+   */
+  private static void assertEachTaskHasItsOwnCursor( SubsetSum search ) {
+    int size = search.scaledValues.length;
+    int shared = 0;
+    for ( long target = -60; target <= 60; ++target ) {
+      // The cursors the tasks of a parallel search for the target are handed
+      Set<SubsetCursor> cursors = Collections.newSetFromMap( new IdentityHashMap<>( ) );
+      int[] orders = search.planOrders( target );
+      for ( int n : orders ) {
+        long scaledTarget = search.scaleTarget( target, n );
+        if ( search.chooseEnd( n, scaledTarget ) == HeapEnd.COMPLEMENT
+             && Arrays.stream( orders ).anyMatch( m -> m == size - n ) ) {
+          ++shared;
+        }
+        cursors.add( search.cursor( n, search.chooseParallelEnd( n, scaledTarget ) ) );
+      }
+      assertEquals( orders.length, cursors.size( ), "target " + target );
+    }
+    // Some targets would share a cursor between two orders through the complement heap
+    assertTrue( shared > 0 );
+  }
+
+  @Test
+  public void parallelSearchWithSpillDirectoryMatchesBruteForce( ) {
+    Random random = new Random( 5 );
+    ForkJoinPool pool = new ForkJoinPool( 4 );
+    for ( int trial = 0; trial < 20; ++trial ) {
+      ScaledInput input = randomInput( random, 8 + random.nextInt( 6 ) );
+      SubsetSum search = new SubsetSum( input );
+      search.spillDirectory = directory.resolve( "trial-" + trial );
+      search.spillMemoryNodes = 8;
+      search.mode = SearchMode.THRESHOLD;
+      for ( int i = 0; i < 5; ++i ) {
+        long target = random.nextInt( 500 ) - 150;
+        SubsetNode node = search.parallelSearch( target, true, pool );
+        assertEquals( hasSubset( input.values, target ), node != null,
+                      "target " + target + " in trial " + trial );
+        if ( node != null ) {
+          assertEquals( target, sum( input, node ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void parallelSearchWithCacheMatchesBruteForce( ) {
+    Random random = new Random( 7 );
+    ForkJoinPool pool = new ForkJoinPool( 4 );
+    for ( int trial = 0; trial < 200; ++trial ) {
+      ScaledInput input = randomInput( random, 8 + random.nextInt( 8 ) );
+      SubsetSum search = new SubsetSum( input );
+      search.cache = new SubsetRankCache( 64L << 20 );
+      search.mode = SearchMode.THRESHOLD;
+      // Several targets against the same cache, so that later searches reuse the cursors of
+      // earlier ones, including the min-heaps that are the complement heaps of other orders
+      for ( int i = 0; i < 5; ++i ) {
+        long target = random.nextInt( 500 ) - 150;
+        SubsetNode node = search.parallelSearch( target, true, pool );
+        boolean expected = hasSubset( input.values, target );
+        assertEquals( expected, node != null, "target " + target + " in trial " + trial );
+        if ( node != null ) {
+          assertEquals( target, sum( input, node ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void parallelSearchReturnsTheSequentialResult( ) {
+    Random random = new Random( 11 );
+    for ( int trial = 0; trial < 200; ++trial ) {
+      ScaledInput input = randomInput( random, 6 + random.nextInt( 10 ) );
+      long target = random.nextInt( 500 ) - 150;
+      for ( boolean cheapestFirst : new boolean[] { false, true } ) {
+        SubsetSum sequential = new SubsetSum( input );
+        sequential.cheapestFirst = cheapestFirst;
+        SubsetSum parallel = new SubsetSum( input );
+        parallel.cheapestFirst = cheapestFirst;
+        SubsetNode expected = sequential.search( target );
+        SubsetNode actual = parallel.parallelSearch( target, true, ForkJoinPool.commonPool( ) );
+        if ( expected == null ) {
+          assertNull( actual );
+        }
+        else {
+          assertNotNull( actual );
+          assertEquals( Arrays.toString( expected.indices ),
+                        Arrays.toString( actual.indices ) );
+        }
+      }
+    }
+  }
+
+  /*
+   * The 20-sized subsets of 40 values number C(40, 20), about 1.4 * 10^11, far more than a cursor
+   * can rank, so the binary and interpolation searches must not probe the middle of the tree
+   */
+  @Test
+  public void searchOfATreeBeyondTheReachOfACursorWalksUpToTheTarget( ) {
+    long[] values = new long[40];
+    for ( int i = 0; i < values.length; ++i ) {
+      values[i] = 2 * ( i + 1 );
+    }
+    ScaledInput input = new ScaledInput( values );
+    for ( SearchMode mode : SearchMode.values( ) ) {
+      SubsetSum search = new SubsetSum( input );
+      search.mode = mode;
+      assertTrue( search.treeSize( 20 ) > SubsetCursor.MAX_RANK );
+      // Every value is even, so an odd target is a miss, just above the sum of the 20 smallest
+      assertNull( search.searchOrder( 20, 421 ), mode.toString( ) );
+      SubsetNode hit = search.searchOrder( 20, 424 );
+      assertNotNull( hit, mode.toString( ) );
+      assertEquals( 424, sum( input, hit ) );
+      // And a miss just below the sum of the 20 largest, which is walked from the top
+      assertNull( search.searchOrder( 20, 1219 ), mode.toString( ) );
+    }
+  }
+
+  @Test
+  public void sumsFromRejectsRanksBeyondTheReachOfACursor( ) {
+    long[] values = new long[40];
+    for ( int i = 0; i < values.length; ++i ) {
+      values[i] = i;
+    }
+    SubsetSum search = new SubsetSum( new ScaledInput( values ) );
+    assertThrows( IllegalArgumentException.class,
+                  ( ) -> search.sumsFrom( 20, SubsetCursor.MAX_RANK, 2 ) );
+    assertArrayEquals( new long[] { 190, 191, 192 }, search.sumsFrom( 20, 1, 3 ) );
+  }
+
+  @Test
+  public void solutionsYieldEverySubsetSummingToTheTargetOnce( ) {
+    Random random = new Random( 13 );
+    for ( int trial = 0; trial < 40; ++trial ) {
+      long[] values = new long[4 + random.nextInt( 9 )];
+      for ( int i = 0; i < values.length; ++i ) {
+        values[i] = random.nextInt( 12 ) - 4;
+      }
+      ScaledInput input = new ScaledInput( values );
+      for ( int t = 0; t < 4; ++t ) {
+        long target = random.nextInt( 30 ) - 8;
+        List<Set<String>> expected = subsetsSummingTo( input.values, target );
+        for ( boolean dualEnded : new boolean[] { false, true } ) {
+          SubsetSum search = new SubsetSum( input );
+          search.dualEnded = dualEnded;
+          String message = Arrays.toString( input.values ) + " target " + target;
+          Set<String> yielded = new HashSet<String>( );
+          int size = 0;
+          for ( Iterator<SubsetNode> it = search.solutions( target ); it.hasNext( ); ) {
+            SubsetNode node = it.next( );
+            assertEquals( target, sum( input, node ), message );
+            assertTrue( node.size( ) >= size, message + " out of order of size" );
+            size = node.size( );
+            assertTrue( yielded.add( sortedIndices( node ) ), message + " twice " + node );
+          }
+          Set<String> all = new HashSet<String>( );
+          for ( int n = 1; n < expected.size( ); ++n ) {
+            all.addAll( expected.get( n ) );
+            Set<String> ofSize = new HashSet<String>( );
+            for ( Iterator<SubsetNode> it = search.solutions( target, n ); it.hasNext( ); ) {
+              SubsetNode node = it.next( );
+              assertEquals( n, node.size( ) );
+              ofSize.add( sortedIndices( node ) );
+            }
+            assertEquals( expected.get( n ), ofSize, message + " order " + n );
+          }
+          assertEquals( all, yielded, message );
+          assertEquals( all.size( ), search.solutionStream( target ).count( ), message );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void solutionsPastTheLastThrowAndTheEmptySetHasNone( ) {
+    SubsetSum search = new SubsetSum( new ScaledInput( new long[] { 3, 4, 7 } ) );
+    Iterator<SubsetNode> solutions = search.solutions( 7 );
+    assertEquals( "[2]", sortedIndices( solutions.next( ) ) );
+    assertEquals( "[0, 1]", sortedIndices( solutions.next( ) ) );
+    assertFalse( solutions.hasNext( ) );
+    assertThrows( NoSuchElementException.class, solutions::next );
+    assertFalse( search.solutions( 8 ).hasNext( ) );
+    assertEquals( 0, new SubsetSum( new ScaledInput( new long[0] ) ).solutionStream( 0 ).count( ) );
+  }
+
+  @Test
+  public void closingTheSolutionStreamCancelsItsCursor( ) {
+    ScaledInput input = new ScaledInput( new long[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 } );
+    SubsetSum search = new SubsetSum( input );
+    search.dualEnded = false;
+    search.cache = new SubsetRankCache( 64L << 20 );
+    SubsetNode first;
+    try ( Stream<SubsetNode> stream = search.solutionStream( 20 ) ) {
+      first = stream.skip( 1 ).findFirst( ).get( );
+    }
+    // 8 + 12 and 9 + 11 are the first two, and the stream stops within the 2-sized tree
+    assertEquals( 2, first.size( ) );
+    SubsetCursor cursor = search.cache.get( search.scaledValues, 2 );
+    assertTrue( cursor.isCancelled( ) );
+    // The next search handed the cursor resumes it
+    assertEquals( 2, search.solutionStream( 20 ).filter( node -> node.size( ) == 2 ).count( ) );
+    assertFalse( cursor.isCancelled( ) );
+
+    SolutionIterator solutions = (SolutionIterator) search.solutions( 20 );
+    assertNotNull( solutions.next( ) );
+    solutions.close( );
+    assertTrue( cursor.isCancelled( ) );
+    assertFalse( solutions.hasNext( ) );
+  }
+
+  @Test
+  public void searchAllAgreesWithSearchingEachTarget( ) {
+    Random random = new Random( 12 );
+    for ( int trial = 0; trial < 60; ++trial ) {
+      ScaledInput input = randomInput( random, 3 + random.nextInt( 11 ) );
+      long[] targets = new long[1 + random.nextInt( 40 )];
+      for ( int i = 0; i < targets.length; ++i ) {
+        targets[i] = random.nextInt( 700 ) - 250;
+      }
+      // Repeated targets, including one of 0
+      targets[0] = 0;
+      targets[targets.length - 1] = targets[targets.length / 2];
+      Arrays.sort( targets );
+      for ( boolean dualEnded : new boolean[] { false, true } ) {
+        SubsetSum batch = new SubsetSum( input );
+        batch.dualEnded = dualEnded;
+        SubsetNode[] nodes = batch.searchAll( targets );
+        assertEquals( targets.length, nodes.length );
+        for ( int i = 0; i < targets.length; ++i ) {
+          String message = Arrays.toString( input.values ) + " target " + targets[i];
+          SubsetSum single = new SubsetSum( input );
+          single.dualEnded = dualEnded;
+          SubsetNode expected = single.search( targets[i] );
+          assertEquals( hasSubset( input.values, targets[i] ), expected != null, message );
+          if ( expected == null ) {
+            assertNull( nodes[i], message );
+            continue;
+          }
+          assertNotNull( nodes[i], message );
+          assertEquals( targets[i], sum( input, nodes[i] ), message );
+          assertEquals( expected.size( ), nodes[i].size( ), message + " is not a smallest subset" );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void searchAllResolvesRepeatedTargetsAndRejectsUnsortedOnes( ) {
+    SubsetSum search = new SubsetSum( new ScaledInput( new long[] { 1, 2, 3 } ) );
+    assertThrows( IllegalArgumentException.class, ( ) -> search.searchAll( new long[] { 3, 2 } ) );
+    assertEquals( 0, search.searchAll( new long[0] ).length );
+    SubsetNode[] nodes = search.searchAll( new long[] { -1, 3, 3, 7 } );
+    assertNull( nodes[0] );
+    assertEquals( 1, nodes[1].size( ) );
+    assertEquals( 1, nodes[2].size( ) );
+    assertNull( nodes[3] );
+  }
+
+  @Test
+  public void solveAllReturnsAResultForEachTarget( ) {
+    ScaledInput input = new ScaledInput( new long[] { 14, -6, 3, 9, -1, 22, 5 } );
+    long[] targets = { -8, -7, 0, 4, 17, 29, 45, 46, 47 };
+    SubsetTreeSolver solver = new SubsetTreeSolver( );
+    SubsetSumResult[] results = solver.solveAll( input, targets );
+    for ( int i = 0; i < targets.length; ++i ) {
+      SubsetSumResult expected = solver.solve( input, targets[i] );
+      if ( expected == null ) {
+        assertNull( results[i], "target " + targets[i] );
+      }
+      else {
+        assertEquals( targets[i], results[i].sum );
+        assertEquals( expected.size( ), results[i].size( ), "target " + targets[i] );
+      }
+    }
+  }
+
+}
@@ -0,0 +1,175 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class TreeExporterTest {
+
+  /*
+   * a, with children b and c"q, and b with children d and e
+   */
+  private static TreeNode<String> tree( ) {
+    TreeNode<String> root = new TreeNode<String>( "a" );
+    TreeNode<String> b = new TreeNode<String>( "b" );
+    b.addChild( new TreeNode<String>( "d" ) );
+    b.addChild( new TreeNode<String>( "e" ) );
+    root.addChild( b );
+    root.addChild( new TreeNode<String>( "c\"q" ) );
+    return root;
+  }
+
+  private static <N> String export( TreeExporter<N> exporter, N root ) throws IOException {
+    StringWriter writer = new StringWriter( );
+    exporter.export( root, writer );
+    return writer.toString( );
+  }
+
+  private static String export( ExportFormat format, int maxDepth, long maxNodes )
+      throws IOException {
+    TreeExporter<TreeNode<String>> exporter = TreeExporter.<String>forTree( );
+    exporter.format = format;
+    exporter.maxDepth = maxDepth;
+    exporter.maxNodes = maxNodes;
+    return export( exporter, tree( ) );
+  }
+
+  private static int occurrences( String text, String part ) {
+    int count = 0;
+    for ( int i = text.indexOf( part ); i >= 0; i = text.indexOf( part, i + 1 ) ) {
+      ++count;
+    }
+    return count;
+  }
+
+  @Test
+  public void bracketFormatWritesEachNodeWithItsChildren( ) throws IOException {
+    assertEquals( "a:[b:[d:[], e:[]], c\"q:[]]",
+                  export( ExportFormat.BRACKET, Integer.MAX_VALUE, Long.MAX_VALUE ) );
+    assertEquals( "a:[b:[d:[], e:[]], c\"q:[]]", tree( ).toStringVerbose( ) );
+    assertEquals( "a:[b:[...], c\"q:[]]", export( ExportFormat.BRACKET, 1, Long.MAX_VALUE ) );
+    assertEquals( "a:[...]", export( ExportFormat.BRACKET, 0, Long.MAX_VALUE ) );
+    assertEquals( "a:[b:[d:[], ...], ...]", export( ExportFormat.BRACKET, Integer.MAX_VALUE, 3 ) );
+    assertEquals( "a:[...]", export( ExportFormat.BRACKET, Integer.MAX_VALUE, 1 ) );
+  }
+
+  @Test
+  public void jsonFormatMarksTruncatedNodes( ) throws IOException {
+    assertEquals( "{\"label\":\"a\",\"children\":["
+                  + "{\"label\":\"b\",\"children\":["
+                  + "{\"label\":\"d\",\"children\":[]},{\"label\":\"e\",\"children\":[]}]},"
+                  + "{\"label\":\"c\\\"q\",\"children\":[]}]}",
+                  export( ExportFormat.JSON, Integer.MAX_VALUE, Long.MAX_VALUE ) );
+    assertEquals( "{\"label\":\"a\",\"children\":["
+                  + "{\"label\":\"b\",\"children\":[],\"truncated\":true},"
+                  + "{\"label\":\"c\\\"q\",\"children\":[]}]}",
+                  export( ExportFormat.JSON, 1, Long.MAX_VALUE ) );
+    assertEquals( "{\"label\":\"a\",\"children\":["
+                  + "{\"label\":\"b\",\"children\":["
+                  + "{\"label\":\"d\",\"children\":[]}],\"truncated\":true}],\"truncated\":true}",
+                  export( ExportFormat.JSON, Integer.MAX_VALUE, 3 ) );
+  }
+
+  @Test
+  public void dotFormatDrawsAnEdgeToEachChild( ) throws IOException {
+    assertEquals( "digraph SubsetTree {\n"
+                  + "  n0 [label=\"a\"];\n"
+                  + "  n1 [label=\"b\"];\n"
+                  + "  n0 -> n1;\n"
+                  + "  n2 [label=\"d\"];\n"
+                  + "  n1 -> n2;\n"
+                  + "  n3 [label=\"e\"];\n"
+                  + "  n1 -> n3;\n"
+                  + "  n4 [label=\"c\\\"q\"];\n"
+                  + "  n0 -> n4;\n"
+                  + "}\n",
+                  export( ExportFormat.DOT, Integer.MAX_VALUE, Long.MAX_VALUE ) );
+    assertEquals( "digraph SubsetTree {\n"
+                  + "  n0 [label=\"a\"];\n"
+                  + "  n1 [label=\"b\"];\n"
+                  + "  n0 -> n1;\n"
+                  + "  n1_more [label=\"...\", shape=plaintext];\n"
+                  + "  n1 -> n1_more;\n"
+                  + "  n2 [label=\"c\\\"q\"];\n"
+                  + "  n0 -> n2;\n"
+                  + "}\n",
+                  export( ExportFormat.DOT, 1, Long.MAX_VALUE ) );
+    assertEquals( "digraph SubsetTree {\n"
+                  + "  n0 [label=\"a\"];\n"
+                  + "  n0_more [label=\"...\", shape=plaintext];\n"
+                  + "  n0 -> n0_more;\n"
+                  + "}\n",
+                  export( ExportFormat.DOT, Integer.MAX_VALUE, 1 ) );
+  }
+
+  /*
+   * Checks that the heap exported to each depth holds the nodes reached by building children down
+   * to that depth, with those at the depth that have children marked as truncated, and that the
+   * export leaves the cursor's counts as they were
+   */
+  private static void assertHeapExportsToEachDepth( SubsetCursor heap, SubsetCursor builder )
+      throws IOException {
+    TreeExporter<SubsetNode> exporter = TreeExporter.forHeap( heap );
+    exporter.format = ExportFormat.JSON;
+    List<SubsetNode> level = new ArrayList<SubsetNode>( );
+    level.add( heap.root );
+    int nodes = 0;
+    for ( int depth = 0; !level.isEmpty( ); ++depth ) {
+      nodes += level.size( );
+      List<SubsetNode> next = new ArrayList<SubsetNode>( );
+      int truncated = 0;
+      for ( SubsetNode node : level ) {
+        List<SubsetNode> children = builder.buildChildren( node );
+        assertEquals( !children.isEmpty( ), heap.hasChildren( node ), node.toString( ) );
+        truncated += children.isEmpty( ) ? 0 : 1;
+        next.addAll( children );
+      }
+      exporter.maxDepth = depth;
+      String json = export( exporter, heap.root );
+      assertEquals( nodes, occurrences( json, "\"label\"" ), "depth " + depth );
+      assertEquals( truncated, occurrences( json, "\"truncated\"" ), "depth " + depth );
+      level = next;
+    }
+    assertEquals( 0, heap.generated );
+    assertEquals( 0, heap.skipped );
+  }
+
+  @Test
+  public void heapExportsWithoutBeingCounted( ) throws IOException {
+    long[] values = { 1, 2, 3, 5, 8, 13, 21 };
+    for ( int n = 1; n <= values.length; ++n ) {
+      SubsetNode root = SubsetCursor.buildTree( values, n );
+      assertHeapExportsToEachDepth( new SubsetCursor( values, root ),
+                                    new SubsetCursor( values, root ) );
+    }
+    long[] repeated = { 1, 1, 2, 2, 2, 3, 5, 5 };
+    for ( int n = 1; n <= repeated.length; ++n ) {
+      assertHeapExportsToEachDepth( new MultisetCursor( repeated, n ),
+                                    new MultisetCursor( repeated, n ) );
+    }
+  }
+
+  @Test
+  public void flatTreeExportsAsTheHeapItWasBuiltFrom( ) throws IOException {
+    long[] values = { -4, -1, 0, 3, 3, 7, 10 };
+    for ( int n = 1; n <= values.length; ++n ) {
+      FlatSubsetTree tree = FlatSubsetTree.build( values, n );
+      SubsetCursor heap = new SubsetCursor( values, SubsetCursor.buildTree( values, n ) );
+      for ( ExportFormat format : ExportFormat.values( ) ) {
+        for ( int maxDepth : new int[] { 0, 2, Integer.MAX_VALUE } ) {
+          TreeExporter<Integer> flat = TreeExporter.forFlatTree( tree );
+          TreeExporter<SubsetNode> virtual = TreeExporter.forHeap( heap );
+          flat.format = virtual.format = format;
+          flat.maxDepth = virtual.maxDepth = maxDepth;
+          flat.maxNodes = virtual.maxNodes = 20;
+          assertEquals( export( virtual, heap.root ), export( flat, 0 ),
+                        format + " order " + n + " depth " + maxDepth );
+        }
+      }
+    }
+  }
+
+}